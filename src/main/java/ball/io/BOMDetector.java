@@ -0,0 +1,224 @@
+package ball.io;
+/*-
+ * ##########################################################################
+ * Utilities
+ * %%
+ * Copyright (C) 2008 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.io.IOException;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Map;
+import lombok.ToString;
+
+/**
+ * Byte order mark detector:  Matches the longest byte order mark of a
+ * {@link BOMCharsetMap} (or any byte order mark to {@link Charset}
+ * {@link Map}) against a single peek of (at most)
+ * {@link #getMaxLength()} bytes by walking a prefix trie.  A match is
+ * the {@link Map} {@link java.util.Map.Entry} (the byte order mark and
+ * its {@link Charset}).
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@ToString(of = { "map" })
+public class BOMDetector {
+
+    /**
+     * {@link BOMDetector} for {@link BOMCharsetMap#INSTANCE}.
+     */
+    public static final BOMDetector INSTANCE = new BOMDetector(BOMCharsetMap.INSTANCE);
+
+    private final Map<byte[],Charset> map;
+    private final Node root = new Node();
+    private final int max;
+
+    /**
+     * Sole constructor.
+     *
+     * @param   map             The byte order mark to {@link Charset}
+     *                          {@link Map}.
+     */
+    public BOMDetector(Map<byte[],Charset> map) {
+        int max = 0;
+
+        for (Map.Entry<byte[],Charset> entry : map.entrySet()) {
+            Node node = root;
+
+            for (byte b : entry.getKey()) {
+                node = node.child(b & 0xFF, true);
+            }
+
+            if (node.entry == null) {
+                node.entry = entry;
+            }
+
+            max = Math.max(max, entry.getKey().length);
+        }
+
+        this.map = map;
+        this.max = max;
+    }
+
+    /**
+     * Method to get the length of the longest byte order mark (the
+     * maximum number of bytes examined by a match).
+     *
+     * @return  The maximum byte order mark length.
+     */
+    public int getMaxLength() { return max; }
+
+    /**
+     * Method to match the longest byte order mark at the start of a byte
+     * range.
+     *
+     * @param   bytes           The bytes.
+     * @param   offset          The offset of the first byte.
+     * @param   length          The number of bytes.
+     *
+     * @return  The matching {@link java.util.Map.Entry} or {@code null}
+     *          if there is no match.
+     */
+    public Map.Entry<byte[],Charset> match(byte[] bytes, int offset, int length) {
+        Map.Entry<byte[],Charset> match = null;
+        Node node = root;
+
+        for (int i = 0; node != null && i < length; i += 1) {
+            node = node.child(bytes[offset + i] & 0xFF, false);
+
+            if (node != null && node.entry != null) {
+                match = node.entry;
+            }
+        }
+
+        return match;
+    }
+
+    /**
+     * Method to match the longest byte order mark at the position of a
+     * {@link ByteBuffer}.  The {@link ByteBuffer} position is not
+     * changed.
+     *
+     * @param   buffer          The {@link ByteBuffer}.
+     *
+     * @return  The matching {@link java.util.Map.Entry} or {@code null}
+     *          if there is no match.
+     */
+    public Map.Entry<byte[],Charset> match(ByteBuffer buffer) {
+        Map.Entry<byte[],Charset> match = null;
+        Node node = root;
+
+        for (int i = buffer.position(), n = buffer.limit(); node != null && i < n; i += 1) {
+            node = node.child(buffer.get(i) & 0xFF, false);
+
+            if (node != null && node.entry != null) {
+                match = node.entry;
+            }
+        }
+
+        return match;
+    }
+
+    /**
+     * Method to match the longest byte order mark at the position of a
+     * {@link FileChannel}.  The bytes are read with
+     * {@link FileChannel#read(ByteBuffer,long)} so the
+     * {@link FileChannel} position is not changed.
+     *
+     * @param   channel         The {@link FileChannel}.
+     *
+     * @return  The matching {@link java.util.Map.Entry} or {@code null}
+     *          if there is no match.
+     *
+     * @throws  IOException     If an I/O exception occurs.
+     */
+    public Map.Entry<byte[],Charset> match(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(max);
+        long position = channel.position();
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+
+        buffer.flip();
+
+        return match(buffer);
+    }
+
+    /**
+     * Method to match (and consume) the longest byte order mark at the
+     * start of a {@link PushbackInputStream}.  At most
+     * {@link #getMaxLength()} bytes are read (with a single
+     * {@link PushbackInputStream#read(byte[],int,int)} unless the
+     * underlying stream returns fewer bytes) and the bytes following the
+     * byte order mark (or all the bytes if there is no match) are
+     * unread.  The {@link PushbackInputStream} push back buffer must be
+     * at least {@link #getMaxLength()} bytes.
+     *
+     * @param   in              The {@link PushbackInputStream}.
+     *
+     * @return  The matching {@link java.util.Map.Entry} or {@code null}
+     *          if there is no match.
+     *
+     * @throws  IOException     If an I/O exception occurs.
+     */
+    public Map.Entry<byte[],Charset> match(PushbackInputStream in) throws IOException {
+        byte[] bytes = new byte[max];
+        int length = 0;
+
+        while (length < bytes.length) {
+            int count = in.read(bytes, length, bytes.length - length);
+
+            if (count < 0) {
+                break;
+            }
+
+            length += count;
+        }
+
+        Map.Entry<byte[],Charset> match = match(bytes, 0, length);
+        int skip = (match != null) ? match.getKey().length : 0;
+
+        if (length > skip) {
+            in.unread(bytes, skip, length - skip);
+        }
+
+        return match;
+    }
+
+    private static class Node {
+        private Node[] children = null;
+        private Map.Entry<byte[],Charset> entry = null;
+
+        public Node child(int b, boolean create) {
+            Node child = (children != null) ? children[b] : null;
+
+            if (child == null && create) {
+                if (children == null) {
+                    children = new Node[256];
+                }
+
+                child = children[b] = new Node();
+            }
+
+            return child;
+        }
+    }
+}
@@ -21,16 +21,28 @@ package ball.io;
 import java.io.IOException;
 import java.io.LineNumberReader;
 import java.io.Reader;
+import java.nio.CharBuffer;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import lombok.ToString;
 
 /**
- * {@link CharSequence} {@link Reader} implementation.
+ * {@link CharSequence} {@link Reader} implementation.  Characters are
+ * bulk-copied from {@link String}, {@link StringBuilder},
+ * {@link StringBuffer}, and {@link CharBuffer} sequences (with
+ * {@code getChars()} or {@link CharBuffer#get(char[],int,int)}).
+ * {@link #unsynchronized(CharSequence)} provides an unbuffered and
+ * unsynchronized {@link Reader} for single-threaded use.
  *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
 @ToString
 public class CharSequenceReader extends LineNumberReader {
+    private final ReaderImpl impl;
 
     /**
      * Sole constructor.
@@ -38,50 +50,122 @@ public class CharSequenceReader extends LineNumberReader {
      * @param   sequence        The {@link CharSequence}.
      */
     public CharSequenceReader(CharSequence sequence) {
-        super(new ReaderImpl(sequence), 1024);
+        this(new ReaderImpl(sequence));
+    }
+
+    private CharSequenceReader(ReaderImpl impl) {
+        super(impl, 1024);
+
+        this.impl = impl;
+    }
+
+    /**
+     * Method to get an unbuffered {@link Reader} of a
+     * {@link CharSequence} that does not synchronize (and must only be
+     * accessed by one thread at a time).
+     *
+     * @param   sequence        The {@link CharSequence}.
+     *
+     * @return  The {@link Reader}.
+     */
+    public static Reader unsynchronized(CharSequence sequence) {
+        return new ReaderImpl(sequence);
+    }
+
+    /**
+     * {@inheritDoc}  If no characters have been read, the lines are
+     * split directly from the {@link CharSequence} (bypassing the
+     * {@link LineNumberReader} buffer and line number) and
+     * {@link.this} {@link Reader} is consumed.
+     */
+    @Override
+    public Stream<String> lines() {
+        Stream<String> stream = null;
+
+        synchronized (lock) {
+            if (impl.sequence != null && impl.pos == 0) {
+                stream = StreamSupport.stream(new Lines(impl.getChars, impl.length), false);
+                impl.pos = impl.length;
+            } else {
+                stream = super.lines();
+            }
+        }
+
+        return stream;
+    }
+
+    @FunctionalInterface
+    private interface GetChars {
+        public void getChars(int begin, int end, char[] chars, int off);
     }
 
     @ToString
     private static class ReaderImpl extends Reader {
         private CharSequence sequence = null;
-        private volatile int length = 0;
-        private volatile int pos = 0;
-        private volatile int mark = 0;
+        private GetChars getChars = null;
+        private int length = 0;
+        private int pos = 0;
+        private int mark = 0;
 
         public ReaderImpl(CharSequence sequence) {
             super(new Object());
 
             this.sequence = Objects.requireNonNull(sequence);
             this.length = sequence.length();
+
+            if (sequence instanceof String) {
+                getChars = ((String) sequence)::getChars;
+            } else if (sequence instanceof StringBuilder) {
+                getChars = ((StringBuilder) sequence)::getChars;
+            } else if (sequence instanceof StringBuffer) {
+                getChars = ((StringBuffer) sequence)::getChars;
+            } else if (sequence instanceof CharBuffer) {
+                CharBuffer buffer = (CharBuffer) sequence;
+
+                getChars = (begin, end, chars, off) -> {
+                    CharBuffer duplicate = buffer.duplicate();
+
+                    duplicate.position(duplicate.position() + begin);
+                    duplicate.get(chars, off, end - begin);
+                };
+            } else {
+                getChars = (begin, end, chars, off) -> {
+                    for (int i = begin; i < end; i += 1) {
+                        chars[off++] = sequence.charAt(i);
+                    }
+                };
+            }
+        }
+
+        private void ensureOpen() throws IOException {
+            if (sequence == null) {
+                throw new IOException("Stream closed");
+            }
         }
 
         @Override
         public int read() throws IOException {
-            int character = -1;
+            ensureOpen();
 
-            synchronized (lock) {
-                if (pos < length) {
-                    character = sequence.charAt(pos++);
-                }
-            }
-
-            return character;
+            return (pos < length) ? sequence.charAt(pos++) : -1;
         }
 
         @Override
         public int read(char chars[], int off, int len) throws IOException {
-            int count = -1;
+            ensureOpen();
 
-            synchronized (lock) {
-                if (pos < length) {
-                    count = Math.min(length - pos, len);
+            if (off < 0 || len < 0 || len > chars.length - off) {
+                throw new IndexOutOfBoundsException();
+            }
 
-                    for (int i = 0; i < count; i += 1) {
-                        chars[off + i] = sequence.charAt(pos + i);
-                    }
+            int count = -1;
 
-                    pos += count;
-                }
+            if (pos < length) {
+                count = Math.min(length - pos, len);
+                getChars.getChars(pos, pos + count, chars, off);
+                pos += count;
+            } else if (len == 0) {
+                count = 0;
             }
 
             return count;
@@ -93,16 +177,20 @@ public class CharSequenceReader extends LineNumberReader {
                 throw new IllegalArgumentException("skip value is negative");
             }
 
-            synchronized (lock) {
-                count = Math.min(count, length - pos);
-                pos += count;
-            }
+            ensureOpen();
+
+            count = Math.min(count, length - pos);
+            pos += count;
 
             return count;
         }
 
         @Override
-        public boolean ready() throws IOException { return true; }
+        public boolean ready() throws IOException {
+            ensureOpen();
+
+            return true;
+        }
 
         @Override
         public boolean markSupported() { return true; }
@@ -113,19 +201,100 @@ public class CharSequenceReader extends LineNumberReader {
                 throw new IllegalArgumentException("Read-ahead limit < 0");
             }
 
-            synchronized (lock) {
-                mark = pos;
-            }
+            ensureOpen();
+
+            mark = pos;
         }
 
         @Override
         public void reset() throws IOException {
-            synchronized (lock) {
-                pos = mark;
-            }
+            ensureOpen();
+
+            pos = mark;
         }
 
         @Override
-        public void close() throws IOException { sequence = null; }
+        public void close() throws IOException {
+            sequence = null;
+            getChars = null;
+        }
+    }
+
+    /*
+     * Splits [0, length) of a CharSequence at '\n', '\r', and "\r\n".
+     * The characters are bulk-copied in chunks and each line is created
+     * directly from the chunk (or from the carried-over prefix if the
+     * line spans chunks).
+     */
+    private static class Lines extends Spliterators.AbstractSpliterator<String> {
+        private final GetChars getChars;
+        private final int length;
+        private final char[] buffer = new char[8192];
+        private int next = 0;
+        private int start = 0;
+        private int end = 0;
+        private boolean skipLF = false;
+
+        public Lines(GetChars getChars, int length) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+
+            this.getChars = getChars;
+            this.length = length;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super String> consumer) {
+            String line = null;
+            StringBuilder carry = null;
+
+            while (line == null) {
+                if (start >= end) {
+                    if (next >= length) {
+                        break;
+                    }
+
+                    int count = Math.min(buffer.length, length - next);
+
+                    getChars.getChars(next, next + count, buffer, 0);
+                    next += count;
+                    start = 0;
+                    end = count;
+                }
+
+                if (skipLF) {
+                    skipLF = false;
+
+                    if (buffer[start] == '\n') {
+                        start += 1;
+                        continue;
+                    }
+                }
+
+                int i = start;
+
+                while (i < end && buffer[i] != '\n' && buffer[i] != '\r') {
+                    i += 1;
+                }
+
+                if (i < end) {
+                    line = (carry != null) ? carry.append(buffer, start, i - start).toString() : new String(buffer, start, i - start);
+                    skipLF = (buffer[i] == '\r');
+                    start = i + 1;
+                } else {
+                    carry = ((carry != null) ? carry : new StringBuilder()).append(buffer, start, end - start);
+                    start = end;
+                }
+            }
+
+            if (line == null && carry != null) {
+                line = carry.toString();
+            }
+
+            if (line != null) {
+                consumer.accept(line);
+            }
+
+            return (line != null);
+        }
     }
 }
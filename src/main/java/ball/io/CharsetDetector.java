@@ -0,0 +1,288 @@
+package ball.io;
+/*-
+ * ##########################################################################
+ * Utilities
+ * %%
+ * Copyright (C) 2008 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.io.IOException;
+import java.io.PushbackInputStream;
+import java.nio.charset.Charset;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_16BE;
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Heuristic {@link Charset} detector for input without a byte order mark
+ * (see {@link BOMDetector}).  A bounded prefix of the input is sampled
+ * and each candidate is scored:
+ * <ul>
+ *   <li>UTF-32BE/LE: every 4-byte unit must be a valid code point</li>
+ *   <li>UTF-16BE/LE: NUL bytes concentrated in the even (BE) or odd (LE)
+ *       positions and well-formed surrogate pairs</li>
+ *   <li>UTF-8: well-formed multi-byte sequences and no NUL bytes</li>
+ *   <li>windows-1252 or ISO-8859-1: the proportion of high (and C1
+ *       control) bytes</li>
+ * </ul>
+ * The best {@link Result} ({@link Charset} and confidence) is returned.
+ * The byte counts are gathered with simple counted loops over the sample
+ * array that the JIT compiler may vectorize.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@ToString
+public class CharsetDetector {
+
+    /**
+     * The default sample size.
+     */
+    public static final int DEFAULT_SAMPLE_SIZE = 4096;
+
+    private static final Charset UTF_32BE = Charset.forName("UTF-32BE");
+    private static final Charset UTF_32LE = Charset.forName("UTF-32LE");
+    private static final Charset WINDOWS_1252 =
+        Charset.isSupported("windows-1252") ? Charset.forName("windows-1252") : ISO_8859_1;
+
+    @Getter
+    private final int sampleSize;
+
+    /**
+     * Constructor to sample {@link #DEFAULT_SAMPLE_SIZE} bytes.
+     */
+    public CharsetDetector() { this(DEFAULT_SAMPLE_SIZE); }
+
+    /**
+     * Constructor to specify the sample size.
+     *
+     * @param   sampleSize      The maximum number of bytes examined.
+     */
+    public CharsetDetector(int sampleSize) {
+        if (sampleSize < 4) {
+            throw new IllegalArgumentException("sampleSize < 4");
+        }
+
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * Method to detect the {@link Charset} of the sample at the start of
+     * a {@link PushbackInputStream}.  At most {@link #getSampleSize()}
+     * bytes are read and all are unread.  The
+     * {@link PushbackInputStream} push back buffer must be at least
+     * {@link #getSampleSize()} bytes.
+     *
+     * @param   in              The {@link PushbackInputStream}.
+     *
+     * @return  The {@link Result}.
+     *
+     * @throws  IOException     If an I/O exception occurs.
+     */
+    public Result detect(PushbackInputStream in) throws IOException {
+        byte[] bytes = new byte[sampleSize];
+        int length = 0;
+
+        while (length < bytes.length) {
+            int count = in.read(bytes, length, bytes.length - length);
+
+            if (count < 0) {
+                break;
+            }
+
+            length += count;
+        }
+
+        if (length > 0) {
+            in.unread(bytes, 0, length);
+        }
+
+        return detect(bytes, 0, length);
+    }
+
+    /**
+     * Method to detect the {@link Charset} of a sample.  Only the first
+     * {@link #getSampleSize()} bytes are examined.
+     *
+     * @param   bytes           The bytes.
+     * @param   offset          The offset of the first byte.
+     * @param   length          The number of bytes.
+     *
+     * @return  The {@link Result}.
+     */
+    public Result detect(byte[] bytes, int offset, int length) {
+        length = Math.min(length, sampleSize);
+
+        Result result = new Result(UTF_8, 0.0);
+
+        if (length > 0) {
+            int[] nuls = new int[4];
+            int high = 0;
+            int c1 = 0;
+            int controls = 0;
+
+            for (int i = 0; i < length; i += 1) {
+                int b = bytes[offset + i] & 0xFF;
+
+                nuls[i & 3] += (b == 0) ? 1 : 0;
+                high += (b >= 0x80) ? 1 : 0;
+                c1 += (0x80 <= b && b < 0xA0) ? 1 : 0;
+                controls += (b < 0x20 && b != '\t' && b != '\n' && b != '\r' && b != '\f' && b != 0x1B) ? 1 : 0;
+            }
+
+            int even = nuls[0] + nuls[2];
+            int odd = nuls[1] + nuls[3];
+
+            result = best(result, utf32(bytes, offset, length, true));
+            result = best(result, utf32(bytes, offset, length, false));
+            result = best(result, utf16(bytes, offset, length, true, even, odd));
+            result = best(result, utf16(bytes, offset, length, false, odd, even));
+            result = best(result, utf8(bytes, offset, length, even + odd));
+
+            if (even + odd == 0 && high > 0) {
+                double ratio = ((double) high) / length;
+                double confidence = (ratio < 0.3) ? 0.6 : 0.3;
+
+                if (controls > 0) {
+                    confidence /= 2;
+                }
+
+                result = best(result, new Result((c1 > 0) ? WINDOWS_1252 : ISO_8859_1, confidence));
+            }
+        }
+
+        return result;
+    }
+
+    private static Result best(Result left, Result right) {
+        return (right != null && right.getConfidence() > left.getConfidence()) ? right : left;
+    }
+
+    private static Result utf32(byte[] bytes, int offset, int length, boolean big) {
+        Result result = null;
+        int units = length / 4;
+
+        if (units > 0) {
+            int narrow = 0;
+
+            for (int i = 0; i < units; i += 1) {
+                int j = offset + 4 * i;
+                int b0 = bytes[big ? j : j + 3] & 0xFF;
+                int b1 = bytes[big ? j + 1 : j + 2] & 0xFF;
+                int b2 = bytes[big ? j + 2 : j + 1] & 0xFF;
+
+                if (b0 != 0 || b1 > 0x10 || (b1 == 0 && 0xD8 <= b2 && b2 < 0xE0)) {
+                    return null;
+                }
+
+                narrow += (b1 == 0 && b2 == 0) ? 1 : 0;
+            }
+
+            result = new Result(big ? UTF_32BE : UTF_32LE, (narrow > units / 2) ? 0.95 : 0.7);
+        }
+
+        return result;
+    }
+
+    private static Result utf16(byte[] bytes, int offset, int length, boolean big, int nuls, int others) {
+        Result result = null;
+        int units = length / 2;
+
+        if (units > 0 && nuls > 0) {
+            for (int i = 0, low = 0; i < units; i += 1) {
+                int b0 = bytes[offset + 2 * i + (big ? 0 : 1)] & 0xFF;
+
+                if (0xD8 <= b0 && b0 < 0xDC) {
+                    low += 1;
+                } else if (0xDC <= b0 && b0 < 0xE0) {
+                    if (low == 0) {
+                        return null;
+                    }
+
+                    low -= 1;
+                } else if (low > 0) {
+                    return null;
+                }
+            }
+
+            double ratio = ((double) (nuls - others)) / units;
+
+            if (ratio > 0) {
+                result = new Result(big ? UTF_16BE : UTF_16LE, Math.min(0.9, 0.4 + ratio));
+            }
+        }
+
+        return result;
+    }
+
+    private static Result utf8(byte[] bytes, int offset, int length, int nuls) {
+        Result result = null;
+        int sequences = 0;
+        int i = 0;
+
+        while (i < length) {
+            int b = bytes[offset + i] & 0xFF;
+            int n = 0;
+
+            if (b < 0x80) {
+                n = 0;
+            } else if (0xC2 <= b && b < 0xE0) {
+                n = 1;
+            } else if (0xE0 <= b && b < 0xF0) {
+                n = 2;
+            } else if (0xF0 <= b && b < 0xF5) {
+                n = 3;
+            } else {
+                return null;
+            }
+
+            if (i + n >= length) {
+                break;          /* Truncated by the sample */
+            }
+
+            for (int j = 1; j <= n; j += 1) {
+                if ((bytes[offset + i + j] & 0xC0) != 0x80) {
+                    return null;
+                }
+            }
+
+            sequences += (n > 0) ? 1 : 0;
+            i += n + 1;
+        }
+
+        if (nuls == 0) {
+            result = new Result(UTF_8, (sequences > 0) ? Math.min(0.99, 0.7 + 0.05 * sequences) : 0.5);
+        } else {
+            result = new Result(UTF_8, 0.1);
+        }
+
+        return result;
+    }
+
+    /**
+     * {@link CharsetDetector} result:  The detected {@link Charset} and
+     * the confidence ({@code [0.0, 1.0]}; {@code 0.0} if there is no
+     * evidence).
+     */
+    @RequiredArgsConstructor @Getter @ToString
+    public static class Result {
+        private final Charset charset;
+        private final double confidence;
+    }
+}
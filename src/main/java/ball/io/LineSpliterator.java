@@ -0,0 +1,527 @@
+package ball.io;
+/*-
+ * ##########################################################################
+ * Utilities
+ * %%
+ * Copyright (C) 2008 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Splittable line {@link Spliterator} over a {@link CharSequence} or a
+ * (mapped) byte region.  Lines are terminated as specified by
+ * {@link java.io.BufferedReader#readLine()} ({@code '\n'}, {@code '\r'},
+ * or {@code "\r\n"}).  {@link #trySplit()} divides the remaining range at
+ * the line start nearest its midpoint so {@code parallel()} line
+ * processing scales across cores.  Each {@link Line} reports its line
+ * number ({@link Line#getLineNumber()}); the number of lines preceding
+ * each split is only counted if a line number is requested.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+public final class LineSpliterator implements Spliterator<LineSpliterator.Line> {
+    private static final long THRESHOLD = 1 << 12;
+    private static final int SHIFT = 30;
+
+    private final Source source;
+    private Node node;
+    private long position;
+    private long lines;
+
+    private LineSpliterator(Node node, long position, long lines) {
+        this.source = node.source;
+        this.node = node;
+        this.position = position;
+        this.lines = lines;
+    }
+
+    /**
+     * Method to get a {@link LineSpliterator} over a
+     * {@link CharSequence}.
+     *
+     * @param   sequence        The {@link CharSequence}.
+     *
+     * @return  The {@link LineSpliterator}.
+     */
+    public static LineSpliterator of(CharSequence sequence) {
+        return of(new Chars(sequence));
+    }
+
+    /**
+     * Method to get a {@link LineSpliterator} over the remaining bytes of
+     * a {@link ByteBuffer}.  Each {@link Line} is a slice of the
+     * {@link ByteBuffer} that is only decoded when first accessed.
+     *
+     * @param   bytes           The {@link ByteBuffer}.
+     * @param   charset         The {@link Charset} (must encode
+     *                          {@code '\r'} and {@code '\n'} as single
+     *                          bytes).
+     *
+     * @return  The {@link LineSpliterator}.
+     *
+     * @throws  IllegalArgumentException
+     *                          If the {@link Charset} does not encode
+     *                          the line terminators as single bytes.
+     */
+    public static LineSpliterator of(ByteBuffer bytes, Charset charset) {
+        return of(new Bytes(new ByteBuffer[] { bytes.slice() }, 31, bytes.remaining(), charset));
+    }
+
+    /**
+     * Method to get a {@link LineSpliterator} over a region of a
+     * {@link FileChannel}.  The region is mapped (read-only) in windows of
+     * at most {@code 1 << 30} bytes.  Each {@link Line} is a slice of a
+     * mapped window (or a copy if the {@link Line} crosses windows) that
+     * is only decoded when first accessed.
+     *
+     * @param   channel         The {@link FileChannel}.
+     * @param   position        The start of the region.
+     * @param   size            The size of the region.
+     * @param   charset         The {@link Charset} (must encode
+     *                          {@code '\r'} and {@code '\n'} as single
+     *                          bytes).
+     *
+     * @return  The {@link LineSpliterator}.
+     *
+     * @throws  IOException     If the region cannot be mapped.
+     * @throws  IllegalArgumentException
+     *                          If the {@link Charset} does not encode
+     *                          the line terminators as single bytes.
+     */
+    public static LineSpliterator of(FileChannel channel, long position, long size, Charset charset) throws IOException {
+        ByteBuffer[] windows = new ByteBuffer[(int) ((size + (1L << SHIFT) - 1) >>> SHIFT)];
+
+        for (int i = 0; i < windows.length; i += 1) {
+            long offset = ((long) i) << SHIFT;
+
+            windows[i] =
+                channel.map(FileChannel.MapMode.READ_ONLY,
+                            position + offset, Math.min(1L << SHIFT, size - offset));
+        }
+
+        return of(new Bytes(windows, SHIFT, size, charset));
+    }
+
+    private static LineSpliterator of(Source source) {
+        return new LineSpliterator(new Node(source, null, 0, source.length()), 0, 0);
+    }
+
+    /**
+     * Method to test if a {@link Charset} encodes {@code '\r'} and
+     * {@code '\n'} as single (ASCII) bytes (and may therefore be split
+     * by a byte {@link LineSpliterator}).
+     *
+     * @param   charset         The {@link Charset}.
+     *
+     * @return  {@code true} if the {@link Charset} is supported;
+     *          {@code false} otherwise.
+     */
+    public static boolean isSupported(Charset charset) {
+        return Arrays.equals("\r\n".getBytes(charset), new byte[] { '\r', '\n' });
+    }
+
+    @Override
+    public int characteristics() { return ORDERED | NONNULL | IMMUTABLE; }
+
+    @Override
+    public long estimateSize() { return node.end - position; }
+
+    @Override
+    public Spliterator<Line> trySplit() {
+        Spliterator<Line> spliterator = null;
+
+        if (node.end - position >= THRESHOLD) {
+            long split = split(position + (node.end - position) / 2);
+
+            if (position < split && split < node.end) {
+                Node[] children = node.split(split);
+
+                spliterator = new LineSpliterator(children[0], position, lines);
+
+                node = children[1];
+                position = split;
+                lines = 0;
+            }
+        }
+
+        return spliterator;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Line> consumer) {
+        boolean advanced = (position < node.end);
+
+        if (advanced) {
+            long end = source.terminator(position, node.end);
+            Line line = new Line(node, lines, source.line(position, end));
+
+            position = next(source, end, node.end);
+            lines += 1;
+
+            if (position >= node.end) {
+                node.count = lines;
+            }
+
+            consumer.accept(line);
+        }
+
+        return advanced;
+    }
+
+    /*
+     * Returns the start of the line nearest middle (or node.end if there
+     * is none).
+     */
+    private long split(long middle) {
+        long split = next(source, source.terminator(middle, node.end), node.end);
+
+        if (split >= node.end) {
+            long index = middle - 1;
+
+            while (index > position) {
+                int c = source.get(index);
+
+                if (c == '\n' || c == '\r') {
+                    split = next(source, index, node.end);
+                    break;
+                }
+
+                index -= 1;
+            }
+        }
+
+        return split;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + Arrays.asList(position, node.end);
+    }
+
+    /*
+     * Returns the start of the line following the terminator at index
+     * (or end if there is no terminator).
+     */
+    private static long next(Source source, long index, long end) {
+        if (index < end) {
+            if (source.get(index) == '\r' && index + 1 < source.length() && source.get(index + 1) == '\n') {
+                index += 1;
+            }
+
+            index += 1;
+        }
+
+        return index;
+    }
+
+    /**
+     * {@link LineSpliterator} line.
+     */
+    public static final class Line implements CharSequence {
+        private final Node node;
+        private final long index;
+        private final CharSequence sequence;
+
+        private Line(Node node, long index, CharSequence sequence) {
+            this.node = node;
+            this.index = index;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Method to get the line number of {@link.this} {@link Line}:  The
+         * value {@link java.io.LineNumberReader#getLineNumber()} returns
+         * after the {@link Line} is read (the first line is {@code 1}).
+         * The first call may count the lines of the preceding splits.
+         *
+         * @return  The line number.
+         */
+        public long getLineNumber() { return node.base() + index + 1; }
+
+        @Override
+        public int length() { return sequence.length(); }
+
+        @Override
+        public char charAt(int index) { return sequence.charAt(index); }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return sequence.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() { return sequence.toString(); }
+    }
+
+    /*
+     * Split tree node.  The count (of lines starting in [origin, end)) is
+     * recorded when the range is traversed and is otherwise only counted
+     * if required to calculate the base (the number of lines preceding
+     * origin) of a following node.
+     */
+    private static class Node {
+        private final Source source;
+        private final Node parent;
+        private final long origin;
+        private final long end;
+        private volatile Node[] children = null;
+        private volatile long count = -1;
+        private volatile long base = -1;
+
+        public Node(Source source, Node parent, long origin, long end) {
+            this.source = source;
+            this.parent = parent;
+            this.origin = origin;
+            this.end = end;
+        }
+
+        public Node[] split(long middle) {
+            Node[] children = new Node[] {
+                new Node(source, this, origin, middle),
+                new Node(source, this, middle, end)
+            };
+
+            this.children = children;
+
+            return children;
+        }
+
+        public long base() {
+            long base = this.base;
+
+            if (base < 0) {
+                base = 0;
+
+                if (parent != null) {
+                    Node[] siblings = parent.children;
+
+                    base = parent.base();
+
+                    if (this == siblings[1]) {
+                        base += siblings[0].count();
+                    }
+                }
+
+                this.base = base;
+            }
+
+            return base;
+        }
+
+        public long count() {
+            long count = this.count;
+
+            if (count < 0) {
+                Node[] children = this.children;
+
+                if (children != null) {
+                    count = children[0].count() + children[1].count();
+                } else {
+                    count = 0;
+
+                    for (long index = origin; index < end; count += 1) {
+                        index = next(source, source.terminator(index, end), end);
+                    }
+                }
+
+                this.count = count;
+            }
+
+            return count;
+        }
+    }
+
+    /*
+     * Line source abstraction.
+     */
+    private interface Source {
+        public long length();
+        public int get(long index);
+        public long terminator(long from, long to);
+        public CharSequence line(long start, long end);
+    }
+
+    /*
+     * CharSequence Source.
+     */
+    private static class Chars implements Source {
+        private final CharSequence sequence;
+
+        public Chars(CharSequence sequence) {
+            this.sequence = requireNonNull(sequence);
+        }
+
+        @Override
+        public long length() { return sequence.length(); }
+
+        @Override
+        public int get(long index) { return sequence.charAt((int) index); }
+
+        @Override
+        public long terminator(long from, long to) {
+            int index = (int) from;
+            int end = (int) to;
+
+            while (index < end) {
+                char c = sequence.charAt(index);
+
+                if (c == '\n' || c == '\r') {
+                    break;
+                }
+
+                index += 1;
+            }
+
+            return index;
+        }
+
+        @Override
+        public CharSequence line(long start, long end) {
+            return sequence.subSequence((int) start, (int) end).toString();
+        }
+    }
+
+    /*
+     * Byte Source:  A sequence of windows of (1 << shift) bytes (the
+     * last may be shorter).
+     */
+    private static class Bytes implements Source {
+        private final ByteBuffer[] windows;
+        private final int shift;
+        private final long mask;
+        private final long length;
+        private final Charset charset;
+
+        public Bytes(ByteBuffer[] windows, int shift, long length, Charset charset) {
+            if (! isSupported(charset)) {
+                throw new IllegalArgumentException(charset + " does not encode line terminators as single bytes");
+            }
+
+            this.windows = windows;
+            this.shift = shift;
+            this.mask = (1L << shift) - 1;
+            this.length = length;
+            this.charset = charset;
+        }
+
+        @Override
+        public long length() { return length; }
+
+        @Override
+        public int get(long index) {
+            return windows[(int) (index >>> shift)].get((int) (index & mask)) & 0xFF;
+        }
+
+        @Override
+        public long terminator(long from, long to) {
+            while (from < to) {
+                ByteBuffer window = windows[(int) (from >>> shift)];
+                long base = from & ~mask;
+                int index = (int) (from - base);
+                int limit = (int) Math.min(window.limit(), to - base);
+
+                while (index < limit) {
+                    byte b = window.get(index);
+
+                    if (b == '\n' || b == '\r') {
+                        return base + index;
+                    }
+
+                    index += 1;
+                }
+
+                from = base + limit;
+            }
+
+            return to;
+        }
+
+        @Override
+        public CharSequence line(long start, long end) {
+            ByteBuffer bytes = null;
+
+            if (start == end) {
+                bytes = ByteBuffer.allocate(0);
+            } else if ((start >>> shift) == ((end - 1) >>> shift)) {
+                bytes = windows[(int) (start >>> shift)].duplicate();
+                bytes.limit((int) ((end - 1) & mask) + 1).position((int) (start & mask));
+                bytes = bytes.slice();
+            } else {
+                if (end - start > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("Line at " + start + " is too long");
+                }
+
+                bytes = ByteBuffer.allocate((int) (end - start));
+
+                for (long index = start; index < end; ) {
+                    ByteBuffer window = windows[(int) (index >>> shift)].duplicate();
+
+                    window.position((int) (index & mask));
+                    window.limit((int) Math.min(window.limit(), window.position() + (end - index)));
+                    index += window.remaining();
+                    bytes.put(window);
+                }
+
+                bytes.flip();
+            }
+
+            return new Decoded(bytes, charset);
+        }
+    }
+
+    /*
+     * Line decoded (once) on first access.
+     */
+    private static class Decoded implements CharSequence {
+        private final ByteBuffer bytes;
+        private final Charset charset;
+        private volatile String string = null;
+
+        public Decoded(ByteBuffer bytes, Charset charset) {
+            this.bytes = bytes;
+            this.charset = charset;
+        }
+
+        @Override
+        public int length() { return toString().length(); }
+
+        @Override
+        public char charAt(int index) { return toString().charAt(index); }
+
+        @Override
+        public CharSequence subSequence(int start, int end) { return toString().subSequence(start, end); }
+
+        @Override
+        public String toString() {
+            String string = this.string;
+
+            if (string == null) {
+                string = charset.decode(bytes.duplicate()).toString();
+                this.string = string;
+            }
+
+            return string;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package ball.io;
+/*-
+ * ##########################################################################
+ * Utilities
+ * %%
+ * Copyright (C) 2008 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.io.File;
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.ToString;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Memory-mapped {@link File} {@link java.io.BufferedReader}
+ * implementation:  The {@link File} is mapped in windows of (at most)
+ * {@link #MAX_WINDOW} bytes, the byte order mark (if any) is skipped in
+ * place (see {@link BOMDetector}), and the characters are decoded from
+ * the mapped {@link ByteBuffer} (in bulk-copied {@link #BUFFER_SIZE}
+ * chunks) into a large ({@link #BUFFER_SIZE}) character buffer.  {@link #mappedLines()}
+ * splits the mapped bytes into lines that are only decoded if accessed.
+ *
+ * @see UnicodeReader
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+public class MappedUnicodeReader extends LineNumberReader {
+
+    /**
+     * The maximum size of a mapped window.
+     */
+    public static final int MAX_WINDOW = 1 << 30;
+
+    /**
+     * The character buffer size.
+     */
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    private static final Charset DEFAULT = UTF_8;
+
+    private final ReaderImpl impl;
+
+    /**
+     * @param   file            The {@link File} to map.
+     *
+     * @throws  IOException     If the {@link File} cannot be opened or
+     *                          mapped.
+     */
+    public MappedUnicodeReader(File file) throws IOException {
+        this(file.toPath(), null);
+    }
+
+    /**
+     * @param   path            The {@link Path} to map.
+     *
+     * @throws  IOException     If the {@link Path} cannot be opened or
+     *                          mapped.
+     */
+    public MappedUnicodeReader(Path path) throws IOException {
+        this(path, null);
+    }
+
+    /**
+     * @param   path            The {@link Path} to map.
+     * @param   detector        The {@link CharsetDetector} to apply if
+     *                          there is no byte order mark (may be
+     *                          {@code null}).
+     *
+     * @throws  IOException     If the {@link Path} cannot be opened or
+     *                          mapped.
+     */
+    public MappedUnicodeReader(Path path, CharsetDetector detector) throws IOException {
+        this(ReaderImpl.open(path, detector));
+    }
+
+    private MappedUnicodeReader(ReaderImpl impl) {
+        super(impl, BUFFER_SIZE);
+
+        this.impl = impl;
+    }
+
+    /**
+     * Method to get the {@link Charset} selected for the {@link File}.
+     *
+     * @return  The {@link Charset}.
+     */
+    public Charset getCharset() { return impl.charset; }
+
+    /**
+     * Method to get the lines of the {@link File} (independent of the
+     * characters read from {@link.this} {@link java.io.Reader}).  For
+     * {@link Charset}s that encode {@code '\r'} and {@code '\n'} as single
+     * (ASCII) bytes the lines are split on the mapped bytes and each line
+     * is only decoded when the {@link CharSequence} is first accessed (so
+     * lines skipped or filtered without access are never decoded).  In
+     * that case the {@link Stream} is split by a {@link LineSpliterator}
+     * (and may be processed in {@link Stream#parallel() parallel}) and
+     * each line is a {@link LineSpliterator.Line} that reports its line
+     * number.  Lines are terminated as specified by {@link #readLine()}.
+     *
+     * @return  The {@link Stream} of lines.
+     *
+     * @throws  UncheckedIOException
+     *                          If an I/O exception occurs.
+     */
+    public Stream<CharSequence> mappedLines() {
+        Stream<CharSequence> stream = null;
+
+        try {
+            if (LineSpliterator.isSupported(impl.charset)) {
+                stream =
+                    StreamSupport.stream(LineSpliterator.of(impl.channel, impl.start, impl.size - impl.start, impl.charset), false)
+                    .map(t -> t);
+            } else {
+                stream = new LineNumberReader(new ReaderImpl(impl), BUFFER_SIZE).lines().map(t -> t);
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+
+        return stream;
+    }
+
+    @Override
+    public String toString() { return super.toString(); }
+
+    @ToString(of = { "charset", "start", "size" })
+    private static class ReaderImpl extends Reader {
+        private final FileChannel channel;
+        private final long size;
+        private final Charset charset;
+        private final long start;
+        private final CharsetDecoder decoder;
+        private final ByteBuffer bytes = (ByteBuffer) ByteBuffer.allocate(BUFFER_SIZE).flip();
+        private MappedByteBuffer window = null;
+        private long base = 0;
+        private boolean flushing = false;
+        private boolean done = false;
+
+        public static ReaderImpl open(Path path, CharsetDetector detector) throws IOException {
+            FileChannel channel = FileChannel.open(path, READ);
+
+            try {
+                return new ReaderImpl(channel, detector);
+            } catch (IOException | RuntimeException exception) {
+                channel.close();
+                throw exception;
+            }
+        }
+
+        private ReaderImpl(FileChannel channel, CharsetDetector detector) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+
+            map(0);
+
+            Charset charset = DEFAULT;
+            Map.Entry<byte[],Charset> match = BOMDetector.INSTANCE.match(window);
+
+            if (match != null) {
+                charset = match.getValue();
+                window.position(match.getKey().length);
+            } else if (detector != null) {
+                byte[] bytes = new byte[Math.min(detector.getSampleSize(), window.remaining())];
+
+                window.duplicate().get(bytes);
+                charset = detector.detect(bytes, 0, bytes.length).getCharset();
+            }
+
+            this.charset = charset;
+            this.start = window.position();
+            this.decoder = decoder(charset);
+        }
+
+        public ReaderImpl(ReaderImpl impl) throws IOException {
+            this.channel = impl.channel;
+            this.size = impl.size;
+            this.charset = impl.charset;
+            this.start = impl.start;
+            this.decoder = decoder(charset);
+
+            map(start);
+        }
+
+        private static CharsetDecoder decoder(Charset charset) {
+            return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        private void map(long position) throws IOException {
+            base = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAX_WINDOW, size - position));
+        }
+
+        /*
+         * Decodes until some characters are decoded or the input is
+         * exhausted.  The mapped bytes are bulk-copied to a heap buffer
+         * before decoding because the JDK decoders only have fast paths
+         * for array-backed buffers.
+         */
+        @Override
+        public int read(char[] chars, int off, int len) throws IOException {
+            if (window == null) {
+                throw new IOException("Stream closed");
+            }
+
+            CharBuffer out = CharBuffer.wrap(chars, off, len);
+
+            while ((! done) && out.hasRemaining() && out.position() == off) {
+                if (! flushing) {
+                    if ((! window.hasRemaining()) && base + window.limit() < size) {
+                        map(base + window.limit());
+                    }
+
+                    if (window.hasRemaining()) {
+                        ByteBuffer in = window.duplicate();
+
+                        bytes.compact();
+                        in.limit(in.position() + Math.min(in.remaining(), bytes.remaining()));
+                        bytes.put(in);
+                        bytes.flip();
+                        window.position(in.position());
+                    }
+
+                    boolean last = ((! window.hasRemaining()) && base + window.limit() >= size);
+                    CoderResult result = decoder.decode(bytes, out, last);
+
+                    if (result.isUnderflow() && last) {
+                        flushing = true;
+                    }
+                } else {
+                    done = decoder.flush(out).isUnderflow();
+                }
+            }
+
+            return (out.position() > off || len == 0) ? (out.position() - off) : -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            window = null;
+            channel.close();
+        }
+    }
+}
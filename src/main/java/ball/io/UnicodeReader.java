@@ -26,7 +26,6 @@ import java.io.InputStreamReader;
 import java.io.LineNumberReader;
 import java.io.PushbackInputStream;
 import java.nio.charset.Charset;
-import java.util.Arrays;
 import java.util.Map;
 import java.util.Objects;
 import lombok.ToString;
@@ -36,9 +35,13 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 /**
  * {@link java.io.BufferedReader} implementation which analyzes the
  * underlying {@link InputStream} for byte order marks and selects the
- * appropriate {@link Charset}.
+ * appropriate {@link Charset}.  If there is no byte order mark, the
+ * {@link Charset} is UTF-8 unless a {@link CharsetDetector} is specified
+ * to examine a bounded prefix of the input (which is pushed back so the
+ * whole input is never buffered).
  *
  * @see BOMCharsetMap
+ * @see BOMDetector
  *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
@@ -55,13 +58,33 @@ public class UnicodeReader extends LineNumberReader {
         this(new FileInputStream(file));
     }
 
+    /**
+     * @param   file            The {@link File} to open.
+     * @param   detector        The {@link CharsetDetector} to apply if
+     *                          there is no byte order mark.
+     *
+     * @throws  FileNotFoundException
+     *                          If the {@link File} is not found.
+     */
+    public UnicodeReader(File file, CharsetDetector detector) throws FileNotFoundException {
+        this(new FileInputStream(file), detector);
+    }
+
+    /**
+     * @param   in              The underlying {@link InputStream}.
+     */
+    public UnicodeReader(InputStream in) { this(in, null); }
+
     /**
      * @param   in              The underlying {@link InputStream}.
+     * @param   detector        The {@link CharsetDetector} to apply if
+     *                          there is no byte order mark (may be
+     *                          {@code null}).
      */
-    public UnicodeReader(InputStream in) {
+    public UnicodeReader(InputStream in, CharsetDetector detector) {
         this(in instanceof CharsetDetectInputStream
                  ? ((CharsetDetectInputStream) in)
-                 : new CharsetDetectInputStream(in, DEFAULT));
+                 : new CharsetDetectInputStream(in, DEFAULT, detector));
     }
 
     private UnicodeReader(CharsetDetectInputStream in) {
@@ -75,26 +98,16 @@ public class UnicodeReader extends LineNumberReader {
     private static class CharsetDetectInputStream extends PushbackInputStream {
         private final Charset charset;
 
-        public CharsetDetectInputStream(InputStream in, Charset charset) {
-            super(in, 8);
+        public CharsetDetectInputStream(InputStream in, Charset charset, CharsetDetector detector) {
+            super(in, Math.max(8, (detector != null) ? detector.getSampleSize() : 0));
 
             try {
-                for (Map.Entry<byte[],Charset> entry : BOMCharsetMap.INSTANCE.entrySet()) {
-                    byte[] bytes = new byte[entry.getKey().length];
-                    int length = read(bytes);
-
-                    if (length < 0) {
-                        break;
-                    }
+                Map.Entry<byte[],Charset> match = BOMDetector.INSTANCE.match(this);
 
-                    if (bytes.length == length && Arrays.equals(bytes, entry.getKey())) {
-                        charset = entry.getValue();
-                        break;
-                    } else {
-                        if (length > 0) {
-                            unread(bytes, 0, length);
-                        }
-                    }
+                if (match != null) {
+                    charset = match.getValue();
+                } else if (detector != null) {
+                    charset = detector.detect(this).getCharset();
                 }
 
                 this.charset = Objects.requireNonNull(charset);
@@ -0,0 +1,94 @@
+package ball.util;
+/*-
+ * ##########################################################################
+ * Utilities
+ * %%
+ * Copyright (C) 2008 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * {@link MapView} of a {@link ConcurrentMap}.  The atomic
+ * {@link ConcurrentMap} methods are passed to the wrapped
+ * {@link ConcurrentMap} (rather than implemented by the
+ * {@link ConcurrentMap} default methods) so the wrapped implementation's
+ * lock-free ({@link ConcurrentSkipListMap}) or per-bin locking
+ * ({@link ConcurrentHashMap}) write paths are used.
+ *
+ * @param       <K>             The key type.
+ * @param       <V>             The value type.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+public class ConcurrentMapView<K,V> extends MapView<K,V> implements ConcurrentMap<K,V> {
+    private static final long serialVersionUID = -3386003437826306958L;
+
+    /**
+     * Sole constructor.
+     *
+     * @param   map             The {@link ConcurrentMap}.
+     */
+    public ConcurrentMapView(ConcurrentMap<K,V> map) { super(map); }
+
+    @Override
+    protected ConcurrentMap<K,V> map() { return (ConcurrentMap<K,V>) super.map(); }
+
+    @Override
+    public V getOrDefault(Object key, V value) { return map().getOrDefault(key, value); }
+
+    @Override
+    public void forEach(BiConsumer<? super K,? super V> consumer) { map().forEach(consumer); }
+
+    @Override
+    public V putIfAbsent(K key, V value) { return map().putIfAbsent(key, value); }
+
+    @Override
+    public boolean remove(Object key, Object value) { return map().remove(key, value); }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) { return map().replace(key, oldValue, newValue); }
+
+    @Override
+    public V replace(K key, V value) { return map().replace(key, value); }
+
+    @Override
+    public void replaceAll(BiFunction<? super K,? super V,? extends V> function) { map().replaceAll(function); }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K,? extends V> function) {
+        return map().computeIfAbsent(key, function);
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K,? super V,? extends V> function) {
+        return map().computeIfPresent(key, function);
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K,? super V,? extends V> function) {
+        return map().compute(key, function);
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V,? super V,? extends V> function) {
+        return map().merge(key, value, function);
+    }
+}
@@ -19,29 +19,78 @@ package ball.util;
  * ##########################################################################
  */
 import ball.lang.PrimitiveTypeMap;
-import java.util.TreeMap;
+import java.lang.reflect.Member;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static java.util.Comparator.comparing;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
 
 /**
- * Conversion utility based on {@link Factory}.
+ * Conversion utility based on {@link Factory}.  Conversions are resolved
+ * once per (source type, target type) pair and the resolved conversion
+ * is cached in a concurrent registry.  A conversion is resolved by
+ * trying (in order):
+ * <ol>
+ *   <li>a converter registered with
+ *       {@link #register(Class,Class,Function)},</li>
+ *   <li>a case-insensitive {@link EnumLookupMap} look-up if the target
+ *       type is an {@link Enum} and the source is a
+ *       {@link CharSequence}, and</li>
+ *   <li>a {@link Factory} {@link Member} of the target type applicable
+ *       to the source type (or, if the target type is abstract, of the
+ *       first of {@link String} and the primitive wrapper types (in
+ *       order of name) assignable to the target type),</li>
+ * </ol>
+ * and, if none apply, by searching for a chain of at most
+ * {@value #MAX_HOPS} such conversions through {@link String} (from
+ * types with a textual form: {@link CharSequence}, {@link Number},
+ * {@link Boolean}, {@link Character}, and {@link Enum}) or the
+ * (concrete) source and target types of the registered converters.
+ * Converters for {@link Duration} and {@link Path} are registered by
+ * default.  Pairs for which no conversion exists are remembered (up to
+ * {@value #MAX_MISSES} pairs) so repeated failures do not repeat the
+ * search.  All caches are safe for concurrent use without locking.
  *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
-public class Converter extends TreeMap<Class<?>,Factory<?>> {
-    private static final long serialVersionUID = -3178874315076658917L;
+public class Converter {
+    private static final int MAX_HOPS = 3;
+    private static final int MAX_MISSES = 256;
 
-    private static final Converter INSTANCE = new Converter();
+    private static final List<Class<?>> FACTORY_TYPES =
+        Stream.concat(Stream.of(String.class),
+                      Stream.concat(PrimitiveTypeMap.INSTANCE.keySet().stream(),
+                                    PrimitiveTypeMap.INSTANCE.values().stream()))
+        .sorted(comparing(Class::getName))
+        .map(PrimitiveTypeMap::asBoxedType)
+        .distinct()
+        .collect(toList());
 
-    private Converter() {
-        super(comparing(Class::getName));
+    private static final Converter INSTANCE = new Converter();
 
-        put(String.class, new Factory<>(String.class));
+    private final Map<Key,Conversion> registered = new ConcurrentHashMap<>();
+    private final Map<Key,Conversion> resolved = new ConcurrentHashMap<>();
+    private final Set<Key> missing = ConcurrentHashMap.newKeySet();
+    private final AtomicLong generation = new AtomicLong();
 
-        PrimitiveTypeMap.INSTANCE.values().stream()
-            .forEach(t -> put(t, new Factory<>(t)));
-        PrimitiveTypeMap.INSTANCE.keySet().stream()
-            .forEach(t -> put(t, get(PrimitiveTypeMap.INSTANCE.get(t))));
+    private Converter() {
+        registered.put(new Key(CharSequence.class, Duration.class), t -> Duration.parse((CharSequence) t));
+        registered.put(new Key(CharSequence.class, Path.class), t -> Paths.get(t.toString()));
     }
 
     /**
@@ -60,13 +109,7 @@ public class Converter extends TreeMap<Class<?>,Factory<?>> {
             if (from == null || type.isAssignableFrom(from.getClass())) {
                 to = from;
             } else {
-                to =
-                    INSTANCE.computeIfAbsent(type,
-                                             k -> (INSTANCE.values().stream()
-                                                   .filter(t -> k.isAssignableFrom(t.getType()))
-                                                   .findFirst()
-                                                   .orElse(new Factory<>(k))))
-                    .getInstance(from);
+                to = INSTANCE.conversion(from.getClass(), type).apply(from);
             }
         } catch (RuntimeException exception) {
             throw exception;
@@ -76,4 +119,245 @@ public class Converter extends TreeMap<Class<?>,Factory<?>> {
 
         return to;
     }
+
+    /**
+     * Static method to register a converter.  The converter is applied to
+     * any source value assignable to {@code source} whose target type is
+     * assignable from {@code target}.  Registering a converter discards
+     * any previously resolved (or missing) conversions.
+     *
+     * @param   source          The source type ({@link Class}).
+     * @param   target          The target type ({@link Class}).
+     * @param   function        The converter {@link Function}.
+     * @param   <S>             The source type.
+     * @param   <T>             The target type.
+     */
+    @SuppressWarnings({ "unchecked" })
+    public static <S,T> void register(Class<S> source, Class<T> target, Function<? super S,? extends T> function) {
+        requireNonNull(function);
+
+        Key key = new Key(source, target);
+
+        INSTANCE.registered.put(key, t -> function.apply(((Class<? extends S>) key.source).cast(t)));
+        INSTANCE.generation.incrementAndGet();
+        INSTANCE.resolved.clear();
+        INSTANCE.missing.clear();
+    }
+
+    /*
+     * Resolutions that overlap a registration are discarded (the
+     * generation changes) so the caches never retain a result computed
+     * from a stale registry.
+     */
+    private Conversion conversion(Class<?> source, Class<?> target) throws NoSuchMethodException {
+        Key key = new Key(source, target);
+        Conversion conversion = resolved.get(key);
+
+        if (conversion == null) {
+            if (missing.contains(key)) {
+                throw new NoSuchMethodException("No conversion from " + source.getName() + " to " + target.getName());
+            }
+
+            long generation = this.generation.get();
+
+            conversion = resolve(key.source, key.target);
+
+            if (conversion != null) {
+                resolved.putIfAbsent(key, conversion);
+            } else {
+                while (missing.size() >= MAX_MISSES) {
+                    Iterator<Key> iterator = missing.iterator();
+
+                    if (iterator.hasNext()) {
+                        iterator.next();
+                        iterator.remove();
+                    }
+                }
+
+                missing.add(key);
+            }
+
+            if (generation != this.generation.get()) {
+                resolved.remove(key);
+                missing.remove(key);
+            }
+
+            if (conversion == null) {
+                throw new NoSuchMethodException("No conversion from " + source.getName() + " to " + target.getName());
+            }
+        }
+
+        return conversion;
+    }
+
+    /*
+     * Breadth-first search for the shortest chain of direct conversions.
+     */
+    private Conversion resolve(Class<?> source, Class<?> target) {
+        Conversion conversion = direct(source, target);
+
+        if (conversion == null) {
+            Map<Class<?>,Conversion> paths = new HashMap<>();
+            Queue<Class<?>> queue = new ArrayDeque<>();
+
+            paths.put(source, t -> t);
+            queue.add(source);
+
+            for (int hops = 1; conversion == null && hops < MAX_HOPS && (! queue.isEmpty()); hops += 1) {
+                for (int i = 0, n = queue.size(); conversion == null && i < n; i += 1) {
+                    Class<?> from = queue.remove();
+                    Conversion path = paths.get(from);
+
+                    for (Class<?> via : intermediates()) {
+                        if (via == String.class && (! isTextual(from))) {
+                            continue;
+                        }
+
+                        if (! paths.containsKey(via)) {
+                            Conversion step = direct(from, via);
+
+                            if (step != null) {
+                                Conversion next = path.andThen(step);
+                                Conversion last = direct(via, target);
+
+                                paths.put(via, next);
+                                queue.add(via);
+
+                                if (last != null) {
+                                    conversion = next.andThen(last);
+                                    break;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return conversion;
+    }
+
+    /*
+     * Only types with a textual form may be converted to an intermediate
+     * String:  Any Object may be converted by String.valueOf(Object) so
+     * the String hop would otherwise "resolve" (to a chain that fails on
+     * every call) for nearly any pair.
+     */
+    private static boolean isTextual(Class<?> type) {
+        return (CharSequence.class.isAssignableFrom(type)
+                || Number.class.isAssignableFrom(type)
+                || Boolean.class.isAssignableFrom(type)
+                || Character.class.isAssignableFrom(type)
+                || Enum.class.isAssignableFrom(type));
+    }
+
+    private Set<Class<?>> intermediates() {
+        Set<Class<?>> set = new LinkedHashSet<>();
+
+        set.add(String.class);
+        registered.keySet().stream()
+            .flatMap(t -> Stream.of(t.source, t.target))
+            .filter(t -> (! t.isInterface()))
+            .forEach(set::add);
+
+        return set;
+    }
+
+    private Conversion direct(Class<?> source, Class<?> target) {
+        Conversion conversion = null;
+
+        if (target.isAssignableFrom(source)) {
+            conversion = t -> t;
+        }
+
+        if (conversion == null) {
+            conversion = registered.get(new Key(source, target));
+        }
+
+        if (conversion == null) {
+            conversion =
+                registered.entrySet().stream()
+                .filter(t -> t.getKey().source.isAssignableFrom(source))
+                .filter(t -> target.isAssignableFrom(t.getKey().target))
+                .map(Map.Entry::getValue)
+                .findFirst().orElse(null);
+        }
+
+        if (conversion == null) {
+            if (target.isEnum() && CharSequence.class.isAssignableFrom(source)) {
+                @SuppressWarnings({ "unchecked" })
+                EnumLookupMap map = new EnumLookupMap((Class<? extends Enum<?>>) target);
+
+                conversion = t -> {
+                    Object value = map.get(t.toString());
+
+                    if (value == null) {
+                        throw new IllegalArgumentException("\"" + t + "\" is not a constant of " + target.getName());
+                    }
+
+                    return value;
+                };
+            }
+        }
+
+        if (conversion == null) {
+            Set<Class<?>> types = new LinkedHashSet<>();
+
+            types.add(target);
+            types.addAll(FACTORY_TYPES);
+
+            for (Class<?> type : types) {
+                if (target.isAssignableFrom(type)) {
+                    Factory<?> factory = Factory.of(type);
+                    Member member = factory.get(new Class<?>[] { source });
+
+                    if (member != null) {
+                        conversion = t -> factory.apply(member, t);
+                        break;
+                    }
+                }
+            }
+        }
+
+        return conversion;
+    }
+
+    @FunctionalInterface
+    private interface Conversion {
+        public Object apply(Object from) throws Exception;
+
+        default Conversion andThen(Conversion next) {
+            return t -> next.apply(apply(t));
+        }
+    }
+
+    /*
+     * (source, target) pair with a precomputed hash code.  Primitive
+     * types are replaced by their wrappers.
+     */
+    private static class Key {
+        public final Class<?> source;
+        public final Class<?> target;
+        private final int hashCode;
+
+        public Key(Class<?> source, Class<?> target) {
+            this.source = PrimitiveTypeMap.asBoxedType(requireNonNull(source));
+            this.target = PrimitiveTypeMap.asBoxedType(requireNonNull(target));
+            this.hashCode = 31 * this.source.hashCode() + this.target.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return (object instanceof Key
+                    && hashCode == ((Key) object).hashCode
+                    && source == ((Key) object).source
+                    && target == ((Key) object).target);
+        }
+
+        @Override
+        public int hashCode() { return hashCode; }
+
+        @Override
+        public String toString() { return source.getName() + "->" + target.getName(); }
+    }
 }
@@ -22,14 +22,21 @@ import java.awt.Point;
 import java.awt.geom.Point2D;
 import java.beans.ConstructorProperties;
 import java.io.Serializable;
+import java.util.AbstractSet;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.Objects;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 /**
- * X-Y coordinate representation.
+ * X-Y coordinate representation.  A {@link Coordinate} may also be
+ * encoded as a {@code long} (see {@link #pack(int,int)}) whose natural
+ * order is the same as the {@link Coordinate} order.  Small
+ * {@link Coordinate}s ({@code 0 <= y, x < }{@value #CACHE_SIZE}) obtained
+ * through {@link #of(int,int)} are shared.
  *
  * {@bean.info}
  *
@@ -38,10 +45,8 @@ import java.util.TreeSet;
 public class Coordinate implements Comparable<Coordinate>, Serializable {
     private static final long serialVersionUID = -4428900365914120909L;
 
-    private static final Comparator<? super Coordinate> COMPARATOR =
-        Comparator
-        .comparingInt(Coordinate::getY)
-        .thenComparingInt(Coordinate::getX);
+    private static final int CACHE_SIZE = 128;
+    private static final Coordinate[] CACHE = new Coordinate[CACHE_SIZE * CACHE_SIZE];
 
     /** @serial */ private final int y;
     /** @serial */ private final int x;
@@ -58,10 +63,88 @@ public class Coordinate implements Comparable<Coordinate>, Serializable {
         this.x = x;
     }
 
+    /**
+     * Static method to get a {@link Coordinate}.
+     *
+     * @param   y               The Y-coordinate.
+     * @param   x               The X-coordinate.
+     *
+     * @return  The (possibly shared) {@link Coordinate}.
+     */
+    public static Coordinate of(int y, int x) {
+        Coordinate coordinate = null;
+
+        if (0 <= y && y < CACHE_SIZE && 0 <= x && x < CACHE_SIZE) {
+            int index = y * CACHE_SIZE + x;
+
+            coordinate = CACHE[index];
+
+            if (coordinate == null) {
+                coordinate = new Coordinate(y, x);
+                CACHE[index] = coordinate;
+            }
+        } else {
+            coordinate = new Coordinate(y, x);
+        }
+
+        return coordinate;
+    }
+
+    /**
+     * Static method to get the {@link Coordinate} of a packed
+     * {@code long} (see {@link #pack(int,int)}).
+     *
+     * @param   packed          The packed {@link Coordinate}.
+     *
+     * @return  The (possibly shared) {@link Coordinate}.
+     */
+    public static Coordinate of(long packed) { return of(unpackY(packed), unpackX(packed)); }
+
+    /**
+     * Static method to pack a Y-X coordinate into a {@code long}.  The
+     * Y-coordinate is stored in the high 32 bits and the (sign-flipped)
+     * X-coordinate in the low 32 bits so packed coordinates compare (as
+     * {@code long}s) in the same order as {@link Coordinate}s.
+     *
+     * @param   y               The Y-coordinate.
+     * @param   x               The X-coordinate.
+     *
+     * @return  The packed {@code long}.
+     */
+    public static long pack(int y, int x) {
+        return (((long) y) << 32) | ((x ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Static method to get the Y-coordinate of a packed {@code long}.
+     *
+     * @param   packed          The packed {@link Coordinate}.
+     *
+     * @return  The Y-coordinate.
+     */
+    public static int unpackY(long packed) { return (int) (packed >> 32); }
+
+    /**
+     * Static method to get the X-coordinate of a packed {@code long}.
+     *
+     * @param   packed          The packed {@link Coordinate}.
+     *
+     * @return  The X-coordinate.
+     */
+    public static int unpackX(long packed) { return ((int) packed) ^ Integer.MIN_VALUE; }
+
     public int getY() { return y; }
 
     public int getX() { return x; }
 
+    /**
+     * Method to get {@link.this} {@link Coordinate} packed into a
+     * {@code long} (see {@link #pack(int,int)}).
+     *
+     * @return  The packed {@code long}.
+     */
+    public long pack() { return pack(y, x); }
+
     /**
      * Method to get the {@link Coordinate} relative to {@link.this}
      * {@link Coordinate}.
@@ -72,7 +155,7 @@ public class Coordinate implements Comparable<Coordinate>, Serializable {
      * @return  The relative {@link Coordinate}.
      */
     public Coordinate translate(Number dy, Number dx) {
-        return new Coordinate(getY() + dy.intValue(), getX() + dx.intValue());
+        return of(getY() + dy.intValue(), getX() + dx.intValue());
     }
 
     /**
@@ -109,16 +192,22 @@ public class Coordinate implements Comparable<Coordinate>, Serializable {
 
     @Override
     public int compareTo(Coordinate that) {
-        return Objects.compare(this, that, COMPARATOR);
+        return (this.y != that.y) ? Integer.compare(this.y, that.y) : Integer.compare(this.x, that.x);
     }
 
     @Override
     public boolean equals(Object object) {
-        return ((object instanceof Coordinate) ? (this.compareTo((Coordinate) object) == 0) : super.equals(object));
+        return ((object instanceof Coordinate)
+                && this.y == ((Coordinate) object).y && this.x == ((Coordinate) object).x);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The value is the same as {@code Arrays.asList(y, x).hashCode()}.
+     */
     @Override
-    public int hashCode() { return Arrays.asList(y, x).hashCode(); }
+    public int hashCode() { return 31 * (31 + y) + x; }
 
     @Override
     public String toString() { return Arrays.asList(y, x).toString(); }
@@ -139,7 +228,13 @@ public class Coordinate implements Comparable<Coordinate>, Serializable {
 
     /**
      * Static method to return a {@link SortedSet} of {@link Coordinate}s
-     * specified by the parameters.
+     * specified by the parameters.  The returned {@link SortedSet} is an
+     * immutable view:  {@link SortedSet#contains(Object)},
+     * {@link SortedSet#size()}, {@link SortedSet#first()},
+     * {@link SortedSet#last()}, and the sub-{@link SortedSet} methods are
+     * computed arithmetically and the {@link Coordinate}s are only created
+     * as they are iterated.  Its {@link Spliterator} splits on row
+     * boundaries where possible.
      *
      * @param   y0              {@code MIN(y)}
      * @param   x0              {@code MIN(x)}
@@ -149,14 +244,219 @@ public class Coordinate implements Comparable<Coordinate>, Serializable {
      * @return  The {@link SortedSet} of {@link Coordinate}s.
      */
     public static SortedSet<Coordinate> range(int y0, int x0, int yN, int xN) {
-        TreeSet<Coordinate> set = new TreeSet<>();
+        return new Range(y0, x0, yN, xN);
+    }
+
+    /*
+     * The rectangle [y0, yN) x [x0, xN) restricted to the row-major
+     * (y-then-x) indices [lower, upper).
+     */
+    private static class Range extends AbstractSet<Coordinate> implements SortedSet<Coordinate>, Serializable {
+        private static final long serialVersionUID = 4915702387212839470L;
+
+        /** @serial */ private final int y0;
+        /** @serial */ private final int x0;
+        /** @serial */ private final int yN;
+        /** @serial */ private final int xN;
+        /** @serial */ private final long lower;
+        /** @serial */ private final long upper;
+
+        public Range(int y0, int x0, int yN, int xN) {
+            this(y0, x0, yN, xN, 0, Math.max(0L, (long) yN - y0) * Math.max(0L, (long) xN - x0));
+        }
+
+        private Range(int y0, int x0, int yN, int xN, long lower, long upper) {
+            this.y0 = y0;
+            this.x0 = x0;
+            this.yN = yN;
+            this.xN = xN;
+            this.lower = lower;
+            this.upper = Math.max(lower, upper);
+        }
+
+        private long width() { return (long) xN - x0; }
+
+        private Coordinate get(long index) {
+            return of((int) (y0 + index / width()), (int) (x0 + index % width()));
+        }
 
-        for (int y = y0; y < yN; y += 1) {
-            for (int x = x0; x < xN; x += 1) {
-                set.add(new Coordinate(y, x));
+        /*
+         * The index of the first Coordinate (in the rectangle) not less
+         * than the argument.
+         */
+        private long index(Coordinate coordinate) {
+            long index = 0;
+
+            if (upper > 0) {
+                if (coordinate.getY() >= yN) {
+                    index = ((long) yN - y0) * width();
+                } else if (coordinate.getY() >= y0) {
+                    index =
+                        ((long) coordinate.getY() - y0) * width()
+                        + Math.max(0, Math.min(width(), (long) coordinate.getX() - x0));
+                }
+            }
+
+            return Math.max(lower, Math.min(upper, index));
+        }
+
+        @Override
+        public Comparator<? super Coordinate> comparator() { return null; }
+
+        @Override
+        public int size() { return (int) Math.min(Integer.MAX_VALUE, upper - lower); }
+
+        @Override
+        public boolean isEmpty() { return lower == upper; }
+
+        @Override
+        public boolean contains(Object object) {
+            boolean contains = false;
+
+            if (object instanceof Coordinate) {
+                Coordinate coordinate = (Coordinate) object;
+
+                if (y0 <= coordinate.getY() && coordinate.getY() < yN
+                    && x0 <= coordinate.getX() && coordinate.getX() < xN) {
+                    long index = ((long) coordinate.getY() - y0) * width() + ((long) coordinate.getX() - x0);
+
+                    contains = (lower <= index && index < upper);
+                }
+            }
+
+            return contains;
+        }
+
+        @Override
+        public Coordinate first() {
+            if (isEmpty()) {
+                throw new NoSuchElementException();
+            }
+
+            return get(lower);
+        }
+
+        @Override
+        public Coordinate last() {
+            if (isEmpty()) {
+                throw new NoSuchElementException();
+            }
+
+            return get(upper - 1);
+        }
+
+        @Override
+        public SortedSet<Coordinate> subSet(Coordinate from, Coordinate to) {
+            if (from.compareTo(to) > 0) {
+                throw new IllegalArgumentException(from + " > " + to);
             }
+
+            return new Range(y0, x0, yN, xN, index(from), index(to));
+        }
+
+        @Override
+        public SortedSet<Coordinate> headSet(Coordinate to) {
+            return new Range(y0, x0, yN, xN, lower, index(to));
+        }
+
+        @Override
+        public SortedSet<Coordinate> tailSet(Coordinate from) {
+            return new Range(y0, x0, yN, xN, index(from), upper);
         }
 
-        return set;
+        @Override
+        public Iterator<Coordinate> iterator() {
+            return new Iterator<Coordinate>() {
+                private long next = lower;
+
+                @Override
+                public boolean hasNext() { return next < upper; }
+
+                @Override
+                public Coordinate next() {
+                    if (! hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    return get(next++);
+                }
+            };
+        }
+
+        @Override
+        public Spliterator<Coordinate> spliterator() { return new Rows(lower, upper); }
+
+        /*
+         * Splits on a row boundary (unless the remaining indices are
+         * within a single row).
+         */
+        private class Rows implements Spliterator<Coordinate> {
+            private long next;
+            private final long fence;
+
+            public Rows(long next, long fence) {
+                this.next = next;
+                this.fence = fence;
+            }
+
+            @Override
+            public int characteristics() {
+                return (ORDERED | DISTINCT | SORTED | SIZED | SUBSIZED | NONNULL | IMMUTABLE);
+            }
+
+            @Override
+            public long estimateSize() { return fence - next; }
+
+            @Override
+            public Comparator<? super Coordinate> getComparator() { return null; }
+
+            @Override
+            public Spliterator<Coordinate> trySplit() {
+                Spliterator<Coordinate> spliterator = null;
+
+                if (fence - next >= 2 && width() > 0) {
+                    long middle = next + (fence - next) / 2;
+                    long row = (middle / width()) * width();
+
+                    if (next < row) {
+                        middle = row;
+                    } else if (row + width() < fence) {
+                        middle = row + width();
+                    }
+
+                    if (next < middle && middle < fence) {
+                        spliterator = new Rows(next, middle);
+                        next = middle;
+                    }
+                }
+
+                return spliterator;
+            }
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Coordinate> consumer) {
+                boolean advanced = (next < fence);
+
+                if (advanced) {
+                    consumer.accept(get(next++));
+                }
+
+                return advanced;
+            }
+
+            @Override
+            public void forEachRemaining(Consumer<? super Coordinate> consumer) {
+                long width = width();
+
+                while (next < fence) {
+                    int y = (int) (y0 + next / width);
+                    long end = Math.min(fence, (next / width + 1) * width);
+
+                    for (int x = (int) (x0 + next % width); next < end; x += 1, next += 1) {
+                        consumer.accept(of(y, x));
+                    }
+                }
+            }
+        }
     }
 }
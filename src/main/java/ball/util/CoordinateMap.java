@@ -18,24 +18,55 @@ package ball.util;
  * limitations under the License.
  * ##########################################################################
  */
+import java.io.Serializable;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 import javax.swing.event.EventListenerList;
 import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
 import javax.swing.table.TableModel;
 
 /**
- * {@link Coordinate} {@link java.util.Map} implementation.
+ * {@link Coordinate} {@link java.util.Map} implementation.  The
+ * {@link Storage} is selected at construction:
+ * {@link Storage#SPARSE} (the default) stores the cells in a
+ * {@link TreeMap}; {@link Storage#TILED} stores the populated cells in
+ * fixed-size tiles for large, mostly-empty spaces; and
+ * {@link Storage#DENSE} stores the cells in a row-major array covering
+ * the bounds of the map.  The array and tile storage provide access
+ * through {@link #get(int,int)}, {@link #set(int,int,Object)},
+ * {@link #remove(int,int)}, and {@link #containsKey(int,int)} (or their
+ * packed-{@code long} counterparts) without allocating {@link Coordinate}
+ * keys.  The bulk operations
+ * ({@link #putAll(Number,Number,Object[][])}, {@link #putAll(Stream)},
+ * {@link #fill(Number,Number,Number,Number,Object)}, and
+ * {@link #apply(Number,Number,Number,Number,BiFunction)}) and explicit
+ * batches ({@link #beginUpdate()} / {@link #endUpdate()}) fire a single
+ * coalesced {@link TableModelEvent}.
  *
  * @param       <V>             The value type.
  *
@@ -47,11 +78,22 @@ public class CoordinateMap<V> extends MapView<Coordinate,V> implements SortedMap
     /** @serial */ private Coordinate min = null;
     /** @serial */ private Coordinate max = null;
     /** @serial */ private final EventListenerList list = new EventListenerList();
+    private transient int updates = 0;
+    private transient TableModelEvent pending = null;
+    private transient int[] dirty = null;
 
     /**
      * Constructor to create an empty {@link CoordinateMap}.
      */
-    public CoordinateMap() { super(new TreeMap<>()); }
+    public CoordinateMap() { this(Storage.SPARSE); }
+
+    /**
+     * Constructor to create an empty {@link CoordinateMap} with the
+     * specified {@link Storage}.
+     *
+     * @param   storage         The {@link Storage}.
+     */
+    public CoordinateMap(Storage storage) { super(backend(storage)); }
 
     /**
      * Constructor to specify minimum and maximum {@code Y} and {@code X}.
@@ -62,11 +104,37 @@ public class CoordinateMap<V> extends MapView<Coordinate,V> implements SortedMap
      * @param   xN              {@code MAX(x) + 1}
      */
     public CoordinateMap(Number y0, Number x0, Number yN, Number xN) {
-        this();
+        this(Storage.SPARSE, y0, x0, yN, xN);
+    }
+
+    /**
+     * Constructor to specify the {@link Storage} and minimum and maximum
+     * {@code Y} and {@code X}.
+     *
+     * @param   storage         The {@link Storage}.
+     * @param   y0              {@code MIN(y)}
+     * @param   x0              {@code MIN(x)}
+     * @param   yN              {@code MAX(y) + 1}
+     * @param   xN              {@code MAX(x) + 1}
+     */
+    public CoordinateMap(Storage storage, Number y0, Number x0, Number yN, Number xN) {
+        this(storage);
 
         resize(y0, x0, yN, xN);
     }
 
+    /**
+     * Constructor to specify the {@link Storage} and maximum {@code Y}
+     * and {@code X} (origin {@code (0, 0)}).
+     *
+     * @param   storage         The {@link Storage}.
+     * @param   yN              {@code MAX(y) + 1}
+     * @param   xN              {@code MAX(x) + 1}
+     */
+    public CoordinateMap(Storage storage, Number yN, Number xN) {
+        this(storage, 0, 0, yN, xN);
+    }
+
     /**
      * Constructor to specify maximum {@code Y} and {@code X} (origin
      * {@code (0, 0)}).
@@ -82,11 +150,36 @@ public class CoordinateMap<V> extends MapView<Coordinate,V> implements SortedMap
         resize(y0, x0, yN, xN);
     }
 
+    private static <V> Backend<V> backend(Storage storage) {
+        Backend<V> backend = null;
+
+        switch (storage) {
+        case DENSE:
+            backend = new Dense<>();
+            break;
+
+        case TILED:
+            backend = new Tiled<>();
+            break;
+
+        case SPARSE:
+        default:
+            backend = new Sparse<>();
+            break;
+        }
+
+        return backend;
+    }
+
     @Override
     protected SortedMap<Coordinate,V> map() {
         return (SortedMap<Coordinate,V>) super.map();
     }
 
+    private Backend<V> backend() {
+        return (map() instanceof Backend) ? ((Backend<V>) map()) : ((CoordinateMap<V>) map()).backend();
+    }
+
     /**
      * Method to get the value type of {@link.this} {@link CoordinateMap}.
      *
@@ -126,10 +219,12 @@ public class CoordinateMap<V> extends MapView<Coordinate,V> implements SortedMap
     }
 
     private void resize(int y0, int x0, int yN, int xN) {
-        min = new Coordinate(Math.min(y0, yN), Math.min(x0, xN));
-        max = new Coordinate(Math.max(y0, yN), Math.max(x0, xN));
+        min = Coordinate.of(Math.min(y0, yN), Math.min(x0, xN));
+        max = Coordinate.of(Math.max(y0, yN), Math.max(x0, xN));
 
-        keySet().retainAll(Coordinate.range(min, max));
+        if (map() instanceof Backend) {
+            backend().retain(getMinY(), getMinX(), getMaxY(), getMaxX());
+        }
 
         fireTableStructureChanged();
     }
@@ -251,7 +346,33 @@ public class CoordinateMap<V> extends MapView<Coordinate,V> implements SortedMap
      *          otherwise.
      */
     public boolean containsKey(Number y, Number x) {
-        return containsKey(new Coordinate(y, x));
+        return containsKey(y.intValue(), x.intValue());
+    }
+
+    /**
+     * See {@link #containsKey(Object)}.
+     *
+     * @param   y               The Y-coordinate.
+     * @param   x               The X-coordinate.
+     *
+     * @return  {@code true} if the {@link CoordinateMap} contains a key
+     *          with the specified {@link Coordinate}; {@code false}
+     *          otherwise.
+     */
+    public boolean containsKey(int y, int x) { return backend().containsKey(y, x); }
+
+    /**
+     * See {@link #containsKey(Object)}.
+     *
+     * @param   packed          The packed {@link Coordinate} (see
+     *                          {@link Coordinate#pack(int,int)}).
+     *
+     * @return  {@code true} if the {@link CoordinateMap} contains a key
+     *          with the specified {@link Coordinate}; {@code false}
+     *          otherwise.
+     */
+    public boolean containsKey(long packed) {
+        return containsKey(Coordinate.unpackY(packed), Coordinate.unpackX(packed));
     }
 
     /**
@@ -262,7 +383,29 @@ public class CoordinateMap<V> extends MapView<Coordinate,V> implements SortedMap
      *
      * @return  The value at the coordinate (may be {@code null}).
      */
-    public V get(Number y, Number x) { return get(new Coordinate(y, x)); }
+    public V get(Number y, Number x) { return get(y.intValue(), x.intValue()); }
+
+    /**
+     * See {@link #get(Object)}.
+     *
+     * @param   y               The Y-coordinate.
+     * @param   x               The X-coordinate.
+     *
+     * @return  The value at the coordinate (may be {@code null}).
+     */
+    public V get(int y, int x) { return backend().get(y, x); }
+
+    /**
+     * See {@link #get(Object)}.
+     *
+     * @param   packed          The packed {@link Coordinate} (see
+     *                          {@link Coordinate#pack(int,int)}).
+     *
+     * @return  The value at the coordinate (may be {@code null}).
+     */
+    public V get(long packed) {
+        return get(Coordinate.unpackY(packed), Coordinate.unpackX(packed));
+    }
 
     /**
      * See {@link #put(Object,Object)}.
@@ -274,30 +417,92 @@ public class CoordinateMap<V> extends MapView<Coordinate,V> implements SortedMap
      * @return  The previous value at the coordinate.
      */
     public V put(Number y, Number x, V value) {
-        return put(new Coordinate(y, x), value);
+        return set(y.intValue(), x.intValue(), value);
+    }
+
+    /**
+     * See {@link #put(Object,Object)}.  (Named {@code set} so calls with
+     * primitive values are not ambiguous with
+     * {@link #put(Number,Number,Object)}.)
+     *
+     * @param   y               The Y-coordinate.
+     * @param   x               The X-coordinate.
+     * @param   value           The value at the coordinate.
+     *
+     * @return  The previous value at the coordinate.
+     */
+    public V set(int y, int x, V value) {
+        include(y, x);
+
+        V old = backend().put(y, x, value);
+
+        cellUpdated(y, x);
+
+        return old;
     }
 
     @Override
     public V put(Coordinate key, V value) {
-        if (min != null) {
-            min = new Coordinate(Math.min(key.getY(), getMinY()), Math.min(key.getX(), getMinX()));
-        } else {
-            min = key;
-        }
+        include(key.getY(), key.getX());
 
-        if (max != null) {
-            max = new Coordinate(Math.max(key.getY() + 1, getMaxY()), Math.max(key.getX() + 1, getMaxX()));
-        } else {
-            max = new Coordinate(key.getY() + 1, key.getX() + 1);
+        V old = super.put(key, value);
+
+        cellUpdated(key.getY(), key.getX());
+
+        return old;
+    }
+
+    /**
+     * See {@link #put(Object,Object)}.
+     *
+     * @param   packed          The packed {@link Coordinate} (see
+     *                          {@link Coordinate#pack(int,int)}).
+     * @param   value           The value at the coordinate.
+     *
+     * @return  The previous value at the coordinate.
+     */
+    public V set(long packed, V value) {
+        return set(Coordinate.unpackY(packed), Coordinate.unpackX(packed), value);
+    }
+
+    private void include(int y, int x) {
+        if (min == null || max == null) {
+            min = Coordinate.of(y, x);
+            max = Coordinate.of(y + 1, x + 1);
+        } else if (! (getMinY() <= y && y < getMaxY() && getMinX() <= x && x < getMaxX())) {
+            min = Coordinate.of(Math.min(y, getMinY()), Math.min(x, getMinX()));
+            max = Coordinate.of(Math.max(y + 1, getMaxY()), Math.max(x + 1, getMaxX()));
         }
+    }
 
-        V old = super.put(key, value);
+    /**
+     * See {@link #remove(Object)}.
+     *
+     * @param   y               The Y-coordinate.
+     * @param   x               The X-coordinate.
+     *
+     * @return  The previous value at the coordinate.
+     */
+    public V remove(int y, int x) {
+        V old = backend().remove(y, x);
 
-        fireTableCellUpdated(key.getY() - getMinY(), key.getX() - getMinX());
+        cellUpdated(y, x);
 
         return old;
     }
 
+    /**
+     * See {@link #remove(Object)}.
+     *
+     * @param   packed          The packed {@link Coordinate} (see
+     *                          {@link Coordinate#pack(int,int)}).
+     *
+     * @return  The previous value at the coordinate.
+     */
+    public V remove(long packed) {
+        return remove(Coordinate.unpackY(packed), Coordinate.unpackX(packed));
+    }
+
     @Override
     public V remove(Object key) {
         V old = super.remove(key);
@@ -305,12 +510,214 @@ public class CoordinateMap<V> extends MapView<Coordinate,V> implements SortedMap
         if (key instanceof Coordinate) {
             Coordinate coordinate = (Coordinate) key;
 
-            fireTableCellUpdated(coordinate.getY() - getMinY(), coordinate.getX() - getMinX());
+            cellUpdated(coordinate.getY(), coordinate.getX());
         }
 
         return old;
     }
 
+    /**
+     * Method to put the elements of a 2-dimensional array with
+     * {@code array[0][0]} at {@code (y0, x0)}.  {@code null} elements are
+     * skipped.  Fires a single (coalesced) {@link TableModelEvent}.
+     *
+     * @param   y0              The Y-coordinate of {@code array[0][0]}.
+     * @param   x0              The X-coordinate of {@code array[0][0]}.
+     * @param   array           The array ({@code array[y][x]}).
+     *
+     * @return  {@link.this} {@link CoordinateMap}.
+     */
+    public CoordinateMap<V> putAll(Number y0, Number x0, V[][] array) {
+        beginUpdate();
+
+        try {
+            for (int i = 0; i < array.length; i += 1) {
+                if (array[i] != null) {
+                    for (int j = 0; j < array[i].length; j += 1) {
+                        if (array[i][j] != null) {
+                            set(y0.intValue() + i, x0.intValue() + j, array[i][j]);
+                        }
+                    }
+                }
+            }
+        } finally {
+            endUpdate();
+        }
+
+        return this;
+    }
+
+    /**
+     * Method to put the {@link java.util.Map.Entry Entries} of a
+     * {@link Stream}.  Fires a single (coalesced)
+     * {@link TableModelEvent}.
+     *
+     * @param   stream          The {@link Stream} of
+     *                          {@link java.util.Map.Entry Entries}.
+     *
+     * @return  {@link.this} {@link CoordinateMap}.
+     */
+    public CoordinateMap<V> putAll(Stream<? extends Entry<? extends Coordinate,? extends V>> stream) {
+        beginUpdate();
+
+        try {
+            stream.forEachOrdered(t -> put(t.getKey(), t.getValue()));
+        } finally {
+            endUpdate();
+        }
+
+        return this;
+    }
+
+    @Override
+    public void putAll(Map<? extends Coordinate,? extends V> map) {
+        beginUpdate();
+
+        try {
+            super.putAll(map);
+        } finally {
+            endUpdate();
+        }
+    }
+
+    /**
+     * Method to put the same value in every cell of a region.  Fires a
+     * single (coalesced) {@link TableModelEvent}.
+     *
+     * @param   y0              {@code MIN(y)}
+     * @param   x0              {@code MIN(x)}
+     * @param   yN              {@code MAX(y) + 1}
+     * @param   xN              {@code MAX(x) + 1}
+     * @param   value           The value.
+     *
+     * @return  {@link.this} {@link CoordinateMap}.
+     */
+    public CoordinateMap<V> fill(Number y0, Number x0, Number yN, Number xN, V value) {
+        return apply(y0, x0, yN, xN, (k, v) -> value);
+    }
+
+    /**
+     * Method to compute the value of every cell of a region (see
+     * {@link #compute(Object,BiFunction)}):  The {@link BiFunction} is
+     * called with the {@link Coordinate} and the current value (or
+     * {@code null} if the cell is not populated) and a {@code null}
+     * result removes the cell.  Fires a single (coalesced)
+     * {@link TableModelEvent}.
+     *
+     * @param   y0              {@code MIN(y)}
+     * @param   x0              {@code MIN(x)}
+     * @param   yN              {@code MAX(y) + 1}
+     * @param   xN              {@code MAX(x) + 1}
+     * @param   function        The {@link BiFunction}.
+     *
+     * @return  {@link.this} {@link CoordinateMap}.
+     */
+    public CoordinateMap<V> apply(Number y0, Number x0, Number yN, Number xN,
+                                  BiFunction<? super Coordinate,? super V,? extends V> function) {
+        beginUpdate();
+
+        try {
+            for (int y = y0.intValue(); y < yN.intValue(); y += 1) {
+                for (int x = x0.intValue(); x < xN.intValue(); x += 1) {
+                    V value = function.apply(Coordinate.of(y, x), get(y, x));
+
+                    if (value != null) {
+                        set(y, x, value);
+                    } else if (containsKey(y, x)) {
+                        remove(y, x);
+                    }
+                }
+            }
+        } finally {
+            endUpdate();
+        }
+
+        return this;
+    }
+
+    /**
+     * Method to start a batch of updates:  Until the matching
+     * {@link #endUpdate()}, {@link TableModelEvent}s are not fired but
+     * are coalesced (the updated cells into their bounding rectangle).
+     * Calls may be nested.
+     */
+    public void beginUpdate() { updates += 1; }
+
+    /**
+     * Method to end a batch of updates started with
+     * {@link #beginUpdate()}.  Ending the outermost batch fires the
+     * coalesced {@link TableModelEvent} (if any).
+     */
+    public void endUpdate() {
+        if (updates <= 0) {
+            throw new IllegalStateException("endUpdate() without beginUpdate()");
+        }
+
+        updates -= 1;
+
+        if (updates == 0) {
+            TableModelEvent event = pending;
+            int[] dirty = this.dirty;
+
+            pending = null;
+            this.dirty = null;
+
+            if (event == null && dirty != null) {
+                if (getMin() != null) {
+                    event =
+                        new TableModelEvent(this, dirty[0] - getMinY(), dirty[2] - 1 - getMinY(),
+                                            (dirty[3] - dirty[1] == 1) ? (dirty[1] - getMinX()) : TableModelEvent.ALL_COLUMNS);
+                } else {
+                    event = new TableModelEvent(this);
+                }
+            }
+
+            if (event != null) {
+                fireTableChanged(event);
+            }
+        }
+    }
+
+    /**
+     * Method to fire (or coalesce in a batch) the {@link TableModelEvent}
+     * for an updated cell.
+     *
+     * @param   y               The Y-coordinate.
+     * @param   x               The X-coordinate.
+     */
+    protected void cellUpdated(int y, int x) {
+        if (updates > 0) {
+            if (dirty == null) {
+                dirty = new int[] { y, x, y + 1, x + 1 };
+            } else {
+                dirty[0] = Math.min(dirty[0], y);
+                dirty[1] = Math.min(dirty[1], x);
+                dirty[2] = Math.max(dirty[2], y + 1);
+                dirty[3] = Math.max(dirty[3], x + 1);
+            }
+        } else if (getMin() != null) {
+            fireTableCellUpdated(y - getMinY(), x - getMinX());
+        }
+    }
+
+    /**
+     * Fires the cell {@link TableModelEvent} for an entry removed through
+     * the {@link #entrySet()} {@link Iterator}.
+     *
+     * @param   key             The removed key.
+     */
+    @Override
+    protected void removed(Coordinate key) { cellUpdated(key.getY(), key.getX()); }
+
+    /**
+     * Fires the cell {@link TableModelEvent} for an entry whose value is
+     * set through the {@link #entrySet()}.
+     *
+     * @param   key             The updated key.
+     */
+    @Override
+    protected void updated(Coordinate key) { cellUpdated(key.getY(), key.getX()); }
+
     @Override
     public Comparator<? super Coordinate> comparator() {
         return map().comparator();
@@ -413,11 +820,29 @@ public class CoordinateMap<V> extends MapView<Coordinate,V> implements SortedMap
         fireTableChanged(new TableModelEvent(this, row, row, column));
     }
 
+    /**
+     * Method to fire a {@link TableModelEvent} to the registered
+     * {@link TableModelListener}s.  Within a batch (see
+     * {@link #beginUpdate()}), a structure change supersedes a data
+     * change which supersedes any other event.
+     *
+     * @param   event           The {@link TableModelEvent}.
+     */
     protected void fireTableChanged(TableModelEvent event) {
-        TableModelListener[] listeners = getTableModelListeners();
+        if (updates > 0) {
+            if (pending == null || pending.getFirstRow() != TableModelEvent.HEADER_ROW) {
+                if (event.getFirstRow() == TableModelEvent.HEADER_ROW) {
+                    pending = event;
+                } else {
+                    pending = new TableModelEvent(this);
+                }
+            }
+        } else {
+            TableModelListener[] listeners = getTableModelListeners();
 
-        for (int i = listeners.length - 1; i >= 0; i -= 1) {
-            listeners[i].tableChanged(event);
+            for (int i = listeners.length - 1; i >= 0; i -= 1) {
+                listeners[i].tableChanged(event);
+            }
         }
     }
 
@@ -434,6 +859,58 @@ public class CoordinateMap<V> extends MapView<Coordinate,V> implements SortedMap
             return (CoordinateMap<V>) super.map();
         }
 
+        private boolean within(int y, int x) {
+            return (getMinY() <= y && y < getMaxY() && getMinX() <= x && x < getMaxX());
+        }
+
+        @Override
+        public void beginUpdate() {
+            map().beginUpdate();
+            super.beginUpdate();
+        }
+
+        @Override
+        public void endUpdate() {
+            super.endUpdate();
+            map().endUpdate();
+        }
+
+        @Override
+        public boolean containsKey(int y, int x) {
+            return within(y, x) && map().containsKey(y, x);
+        }
+
+        @Override
+        public V get(int y, int x) {
+            return within(y, x) ? map().get(y, x) : null;
+        }
+
+        @Override
+        public V set(int y, int x, V value) {
+            if (! within(y, x)) {
+                throw new IllegalArgumentException(Coordinate.of(y, x) + " is outside " + getMin() + " and " + getMax());
+            }
+
+            V old = map().set(y, x, value);
+
+            cellUpdated(y, x);
+
+            return old;
+        }
+
+        @Override
+        public V remove(int y, int x) {
+            V old = null;
+
+            if (within(y, x)) {
+                old = map().remove(y, x);
+
+                cellUpdated(y, x);
+            }
+
+            return old;
+        }
+
         @Override
         public V get(Object key) { return get((Coordinate) key); }
 
@@ -458,39 +935,1351 @@ public class CoordinateMap<V> extends MapView<Coordinate,V> implements SortedMap
         }
 
         @Override
-        public Set<Entry<Coordinate,V>> entrySet() {
-            entrySet.clear();
+        public boolean containsKey(Object key) {
+            return (key instanceof Coordinate) && containsKey(((Coordinate) key).getY(), ((Coordinate) key).getX());
+        }
 
-            for (Entry<Coordinate,V> entry : map().entrySet()) {
-                if (entry.getKey().within(getMin(), getMax())) {
-                    entrySet.add(entry);
-                }
-            }
+        @Override
+        public int size() { return entrySet().size(); }
 
-            return entrySet;
-        }
-    }
+        @Override
+        public boolean isEmpty() { return (! keys().hasNext()); }
 
-    private class BackedList extends AbstractList<V> {
-        private ArrayList<Coordinate> list = new ArrayList<>();
+        @Override
+        public boolean containsValue(Object value) {
+            boolean found = false;
 
-        public BackedList() {
-            super();
+            for (Iterator<Entry<Coordinate,V>> iterator = entrySet().iterator(); (! found) && iterator.hasNext();) {
+                found = Objects.equals(value, iterator.next().getValue());
+            }
 
-            list.addAll(Coordinate.range(CoordinateMap.this.getMin(), CoordinateMap.this.getMax()));
+            return found;
         }
 
         @Override
-        public int size() { return list.size(); }
+        public void clear() { entrySet().clear(); }
 
         @Override
-        public V get(int index) {
-            return CoordinateMap.this.get(list.get(index));
+        public Coordinate firstKey() { return keys().next(); }
+
+        @Override
+        public Coordinate lastKey() {
+            Iterator<Coordinate> iterator = keys();
+            Coordinate key = iterator.next();
+
+            while (iterator.hasNext()) {
+                key = iterator.next();
+            }
+
+            return key;
+        }
+
+        /*
+         * The populated keys within the bounds of every map in the chain
+         * of sub-maps, iterated (in order) directly from the root
+         * map's backend.
+         */
+        private Iterator<Coordinate> keys() {
+            int y0 = getMinY();
+            int x0 = getMinX();
+            int yN = getMaxY();
+            int xN = getMaxX();
+            CoordinateMap<V> map = map();
+
+            while (map instanceof Sub) {
+                y0 = Math.max(y0, map.getMinY());
+                x0 = Math.max(x0, map.getMinX());
+                yN = Math.min(yN, map.getMaxY());
+                xN = Math.min(xN, map.getMaxX());
+                map = ((Sub<V>) map).map();
+            }
+
+            return map.backend().keys(y0, x0, yN, xN);
+        }
+
+        @Override
+        public Set<Entry<Coordinate,V>> entrySet() {
+            return new AbstractSet<Entry<Coordinate,V>>() {
+                @Override
+                public Iterator<Entry<Coordinate,V>> iterator() { return new Cursor(keys()); }
+
+                @Override
+                public int size() {
+                    int size = 0;
+
+                    for (Iterator<Coordinate> iterator = keys(); iterator.hasNext(); iterator.next()) {
+                        size += 1;
+                    }
+
+                    return size;
+                }
+            };
+        }
+
+        private class Cursor implements Iterator<Entry<Coordinate,V>> {
+            private final Iterator<Coordinate> iterator;
+            private Coordinate last = null;
+
+            public Cursor(Iterator<Coordinate> iterator) { this.iterator = iterator; }
+
+            @Override
+            public boolean hasNext() { return iterator.hasNext(); }
+
+            @Override
+            public Entry<Coordinate,V> next() {
+                last = iterator.next();
+
+                return new Ref(last);
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+
+                iterator.remove();
+
+                for (CoordinateMap<V> map = Sub.this; map != null;) {
+                    map.cellUpdated(last.getY(), last.getX());
+                    map = (map instanceof Sub) ? ((Sub<V>) map).map() : null;
+                }
+
+                last = null;
+            }
+        }
+
+        private class Ref implements Entry<Coordinate,V> {
+            private final Coordinate key;
+
+            public Ref(Coordinate key) { this.key = key; }
+
+            @Override
+            public Coordinate getKey() { return key; }
+
+            @Override
+            public V getValue() { return get(key.getY(), key.getX()); }
+
+            @Override
+            public V setValue(V value) { return set(key.getY(), key.getX(), value); }
+
+            @Override
+            public boolean equals(Object object) {
+                return ((object instanceof Entry)
+                        && Objects.equals(getKey(), ((Entry<?,?>) object).getKey())
+                        && Objects.equals(getValue(), ((Entry<?,?>) object).getValue()));
+            }
+
+            @Override
+            public int hashCode() { return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue()); }
+
+            @Override
+            public String toString() { return getKey() + "=" + getValue(); }
+        }
+    }
+
+    /**
+     * {@link CoordinateMap} storage selection.
+     */
+    public enum Storage {
+        /**
+         * Cells are stored in a {@link TreeMap} (one entry per populated
+         * cell).
+         */
+        SPARSE,
+        /**
+         * Cells are stored in a row-major array spanning the bounds of the
+         * map.  The array is reallocated by
+         * {@link #resize(Number,Number,Number,Number)} and grows if a
+         * value is put outside the bounds.
+         */
+        DENSE,
+        /**
+         * Cells are stored in fixed-size (16 x 16) tiles held in a hash
+         * table keyed by packed tile id.  Only tiles with at least one
+         * populated cell are allocated and
+         * {@link #resize(Number,Number,Number,Number)} only visits the
+         * populated tiles.
+         */
+        TILED;
+    }
+
+    /*
+     * Storage backend:  A SortedMap (in natural Coordinate order) that may
+     * also be accessed by primitive coordinates.  retain() removes every
+     * cell outside the specified bounds and keys() iterates (in order) the
+     * populated cells within the specified bounds (the Iterator supports
+     * remove()) visiting only the rows (or column) covered.
+     */
+    private static abstract class Backend<V> extends AbstractMap<Coordinate,V>
+                                    implements SortedMap<Coordinate,V>, Serializable {
+        private static final long serialVersionUID = 6305122106694853570L;
+
+        public abstract boolean containsKey(int y, int x);
+        public abstract V get(int y, int x);
+        public abstract V put(int y, int x, V value);
+        public abstract V remove(int y, int x);
+        public abstract void retain(int y0, int x0, int yN, int xN);
+        public abstract Iterator<Coordinate> keys(int y0, int x0, int yN, int xN);
+
+        protected abstract SortedMap<Coordinate,V> range(Coordinate from, Coordinate to);
+
+        @Override
+        public boolean containsKey(Object key) {
+            return (key instanceof Coordinate) && containsKey(((Coordinate) key).getY(), ((Coordinate) key).getX());
+        }
+
+        @Override
+        public V get(Object key) {
+            return (key instanceof Coordinate) ? get(((Coordinate) key).getY(), ((Coordinate) key).getX()) : null;
+        }
+
+        @Override
+        public V put(Coordinate key, V value) { return put(key.getY(), key.getX(), value); }
+
+        @Override
+        public V remove(Object key) {
+            return (key instanceof Coordinate) ? remove(((Coordinate) key).getY(), ((Coordinate) key).getX()) : null;
+        }
+
+        @Override
+        public Comparator<? super Coordinate> comparator() { return null; }
+
+        @Override
+        public SortedMap<Coordinate,V> subMap(Coordinate from, Coordinate to) {
+            if (from.compareTo(to) > 0) {
+                throw new IllegalArgumentException(from + " > " + to);
+            }
+
+            return range(from, to);
+        }
+
+        @Override
+        public SortedMap<Coordinate,V> headMap(Coordinate to) {
+            return range(null, Objects.requireNonNull(to));
+        }
+
+        @Override
+        public SortedMap<Coordinate,V> tailMap(Coordinate from) {
+            return range(Objects.requireNonNull(from), null);
+        }
+    }
+
+    /*
+     * TreeMap (or TreeMap sub-map) backend.  The first single-column
+     * keys() call builds a secondary column-major index of the root map's
+     * keys (shared with the sub-map views and maintained thereafter) so a
+     * column may be iterated without visiting every row.  Maps that never
+     * iterate a single column never build the index.
+     */
+    private static class Sparse<V> extends Backend<V> {
+        private static final long serialVersionUID = 4642451230150439213L;
+
+        private static final Comparator<Coordinate> COLUMN_MAJOR =
+            (Comparator<Coordinate> & Serializable) (l, r) -> (l.getX() != r.getX()) ? Integer.compare(l.getX(), r.getX()) : Integer.compare(l.getY(), r.getY());
+
+        /** @serial */ private final NavigableMap<Coordinate,V> map;
+        /** @serial */ private final Sparse<V> root;
+        private transient NavigableSet<Coordinate> columns = null;
+
+        public Sparse() { this(new TreeMap<>(), null); }
+
+        private Sparse(NavigableMap<Coordinate,V> map, Sparse<V> root) {
+            this.map = map;
+            this.root = (root != null) ? root : this;
+        }
+
+        private NavigableSet<Coordinate> columns() {
+            if (root.columns == null) {
+                root.columns = new TreeSet<>(COLUMN_MAJOR);
+                root.columns.addAll(root.map.keySet());
+            }
+
+            return root.columns;
+        }
+
+        private void index(Coordinate key) {
+            if (root.columns != null) {
+                root.columns.add(key);
+            }
+        }
+
+        private void unindex(Object key) {
+            if (root.columns != null) {
+                root.columns.remove(key);
+            }
+        }
+
+        @Override
+        public boolean containsKey(int y, int x) { return map.containsKey(Coordinate.of(y, x)); }
+
+        @Override
+        public V get(int y, int x) { return map.get(Coordinate.of(y, x)); }
+
+        @Override
+        public V put(int y, int x, V value) { return put(Coordinate.of(y, x), value); }
+
+        @Override
+        public V remove(int y, int x) { return remove(Coordinate.of(y, x)); }
+
+        @Override
+        public void retain(int y0, int x0, int yN, int xN) {
+            for (Iterator<Coordinate> iterator = map.keySet().iterator(); iterator.hasNext();) {
+                Coordinate key = iterator.next();
+
+                if (! (y0 <= key.getY() && key.getY() < yN && x0 <= key.getX() && key.getX() < xN)) {
+                    iterator.remove();
+                    unindex(key);
+                }
+            }
+        }
+
+        /*
+         * A single column is iterated from the column index; otherwise
+         * each successor is found in the map, skipping directly to the
+         * next populated row.
+         */
+        @Override
+        public Iterator<Coordinate> keys(int y0, int x0, int yN, int xN) {
+            Iterator<Coordinate> iterator = null;
+
+            if (y0 >= yN || x0 >= xN) {
+                iterator = Collections.emptyIterator();
+            } else if (xN - x0 == 1) {
+                iterator = new Keys(t -> {
+                        NavigableSet<Coordinate> columns = columns();
+                        Coordinate key = (t != null) ? columns.higher(t) : columns.ceiling(Coordinate.of(y0, x0));
+
+                        while (key != null && root != this && key.getX() == x0 && key.getY() < yN && (! map.containsKey(key))) {
+                            key = columns.higher(key);
+                        }
+
+                        return (key != null && key.getX() == x0 && key.getY() < yN) ? key : null;
+                    });
+            } else {
+                iterator = new Keys(t -> {
+                        Coordinate key = map.ceilingKey((t != null) ? Coordinate.of(t.getY(), t.getX() + 1) : Coordinate.of(y0, x0));
+
+                        while (key != null && key.getY() < yN) {
+                            if (key.getX() < x0) {
+                                key = map.ceilingKey(Coordinate.of(key.getY(), x0));
+                            } else if (key.getX() >= xN) {
+                                key = (key.getY() + 1 < yN) ? map.ceilingKey(Coordinate.of(key.getY() + 1, x0)) : null;
+                            } else {
+                                break;
+                            }
+                        }
+
+                        return (key != null && key.getY() < yN) ? key : null;
+                    });
+            }
+
+            return iterator;
+        }
+
+        @Override
+        public boolean containsKey(Object key) { return map.containsKey(key); }
+
+        @Override
+        public V get(Object key) { return map.get(key); }
+
+        @Override
+        public V put(Coordinate key, V value) {
+            V old = map.put(key, value);
+
+            if (old == null) {
+                index(key);
+            }
+
+            return old;
+        }
+
+        @Override
+        public V remove(Object key) {
+            V old = null;
+
+            if (root.columns == null) {
+                old = map.remove(key);
+            } else if (map.containsKey(key)) {
+                old = map.remove(key);
+                unindex(key);
+            }
+
+            return old;
+        }
+
+        @Override
+        public int size() { return map.size(); }
+
+        @Override
+        public void clear() {
+            if (root != this) {
+                if (root.columns != null) {
+                    root.columns.removeAll(map.keySet());
+                }
+            } else {
+                columns = null;
+            }
+
+            map.clear();
+        }
+
+        @Override
+        public Set<Entry<Coordinate,V>> entrySet() {
+            return new AbstractSet<Entry<Coordinate,V>>() {
+                @Override
+                public Iterator<Entry<Coordinate,V>> iterator() {
+                    Iterator<Entry<Coordinate,V>> iterator = map.entrySet().iterator();
+
+                    return new Iterator<Entry<Coordinate,V>>() {
+                        private Entry<Coordinate,V> last = null;
+
+                        @Override
+                        public boolean hasNext() { return iterator.hasNext(); }
+
+                        @Override
+                        public Entry<Coordinate,V> next() {
+                            last = iterator.next();
+
+                            return last;
+                        }
+
+                        @Override
+                        public void remove() {
+                            Coordinate key = (last != null) ? last.getKey() : null;
+
+                            iterator.remove();
+                            unindex(key);
+                            last = null;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() { return map.size(); }
+            };
+        }
+
+        @Override
+        public Coordinate firstKey() { return map.firstKey(); }
+
+        @Override
+        public Coordinate lastKey() { return map.lastKey(); }
+
+        @Override
+        protected SortedMap<Coordinate,V> range(Coordinate from, Coordinate to) {
+            NavigableMap<Coordinate,V> map = this.map;
+
+            if (from != null && to != null) {
+                map = map.subMap(from, true, to, false);
+            } else if (from != null) {
+                map = map.tailMap(from, true);
+            } else if (to != null) {
+                map = map.headMap(to, false);
+            }
+
+            return new Sparse<>(map, root);
+        }
+
+        /*
+         * Iterates by successor (so the map may be modified between
+         * calls) and removes the last key from the column index (if
+         * built), too.
+         */
+        private class Keys implements Iterator<Coordinate> {
+            private final UnaryOperator<Coordinate> successor;
+            private Coordinate cursor = null;
+            private Coordinate next = null;
+            private Coordinate last = null;
+            private boolean done = false;
+
+            public Keys(UnaryOperator<Coordinate> successor) { this.successor = successor; }
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && (! done)) {
+                    next = successor.apply(cursor);
+                    done = (next == null);
+                }
+
+                return (next != null);
+            }
+
+            @Override
+            public Coordinate next() {
+                if (! hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                cursor = next;
+                last = next;
+                next = null;
+
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+
+                map.remove(last);
+                unindex(last);
+                last = null;
+            }
+        }
+    }
+
+    /*
+     * Base class for the backends that store (masked) values in cells.
+     * Sub-map views share the underlying store and are limited to the
+     * Coordinate range [from, to) (null is unbounded).  keys() iterates
+     * the populated cells in the range (and optionally within a
+     * rectangle) in (optionally descending) order.
+     */
+    private static abstract class Cells<V> extends Backend<V> {
+        private static final long serialVersionUID = 725796168582588334L;
+
+        /** @serial */ protected final Coordinate from;
+        /** @serial */ protected final Coordinate to;
+
+        protected Cells(Coordinate from, Coordinate to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        protected abstract Object cell(int y, int x);
+        protected abstract Object cell(int y, int x, Object value);
+        protected abstract int population();
+        protected abstract void erase();
+        protected abstract Iterator<Coordinate> keys(boolean descending);
+        protected abstract Iterator<Coordinate> keys(boolean descending, int y0, int x0, int yN, int xN);
+        protected abstract Cells<V> view(Coordinate from, Coordinate to);
+
+        protected boolean isRange() { return (from != null || to != null); }
+
+        protected boolean inRange(int y, int x) {
+            return ((from == null || compare(y, x, from) >= 0) && (to == null || compare(y, x, to) < 0));
+        }
+
+        private static int compare(int y, int x, Coordinate key) {
+            return (y != key.getY()) ? Integer.compare(y, key.getY()) : Integer.compare(x, key.getX());
+        }
+
+        @Override
+        public boolean containsKey(int y, int x) {
+            return inRange(y, x) && cell(y, x) != null;
+        }
+
+        @Override
+        public V get(int y, int x) {
+            return inRange(y, x) ? unmask(cell(y, x)) : null;
+        }
+
+        @Override
+        public V put(int y, int x, V value) {
+            if (! inRange(y, x)) {
+                throw new IllegalArgumentException("key out of range");
+            }
+
+            return unmask(cell(y, x, mask(value)));
+        }
+
+        @Override
+        public V remove(int y, int x) {
+            return inRange(y, x) ? unmask(cell(y, x, null)) : null;
+        }
+
+        @Override
+        public Iterator<Coordinate> keys(int y0, int x0, int yN, int xN) {
+            Iterator<Coordinate> iterator =
+                (y0 < yN && x0 < xN) ? keys(false, y0, x0, yN, xN) : Collections.<Coordinate>emptyIterator();
+
+            return new Iterator<Coordinate>() {
+                private Coordinate last = null;
+
+                @Override
+                public boolean hasNext() { return iterator.hasNext(); }
+
+                @Override
+                public Coordinate next() {
+                    last = iterator.next();
+
+                    return last;
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) {
+                        throw new IllegalStateException();
+                    }
+
+                    cell(last.getY(), last.getX(), null);
+                    last = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+
+            if (isRange()) {
+                for (Iterator<Coordinate> iterator = keys(false); iterator.hasNext(); iterator.next()) {
+                    size += 1;
+                }
+            } else {
+                size = population();
+            }
+
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            if (isRange()) {
+                entrySet().removeIf(t -> true);
+            } else {
+                erase();
+            }
+        }
+
+        @Override
+        public Set<Entry<Coordinate,V>> entrySet() {
+            return new AbstractSet<Entry<Coordinate,V>>() {
+                @Override
+                public Iterator<Entry<Coordinate,V>> iterator() { return new Cursor(keys(false)); }
+
+                @Override
+                public int size() { return Cells.this.size(); }
+            };
+        }
+
+        @Override
+        public Coordinate firstKey() { return keys(false).next(); }
+
+        @Override
+        public Coordinate lastKey() { return keys(true).next(); }
+
+        @Override
+        protected SortedMap<Coordinate,V> range(Coordinate from, Coordinate to) {
+            if (this.from != null && (from == null || this.from.compareTo(from) > 0)) {
+                from = this.from;
+            }
+
+            if (this.to != null && (to == null || this.to.compareTo(to) < 0)) {
+                to = this.to;
+            }
+
+            return view(from, to);
+        }
+
+        private static Object mask(Object value) { return (value != null) ? value : Null.VALUE; }
+
+        @SuppressWarnings({ "unchecked" })
+        private static <V> V unmask(Object value) { return (value != Null.VALUE) ? (V) value : null; }
+
+        private class Cursor implements Iterator<Entry<Coordinate,V>> {
+            private final Iterator<Coordinate> iterator;
+            private Coordinate last = null;
+
+            public Cursor(Iterator<Coordinate> iterator) { this.iterator = iterator; }
+
+            @Override
+            public boolean hasNext() { return iterator.hasNext(); }
+
+            @Override
+            public Entry<Coordinate,V> next() {
+                last = iterator.next();
+
+                return new Cell(last);
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+
+                cell(last.getY(), last.getX(), null);
+                last = null;
+            }
+        }
+
+        private class Cell implements Entry<Coordinate,V> {
+            private final Coordinate key;
+
+            public Cell(Coordinate key) { this.key = key; }
+
+            @Override
+            public Coordinate getKey() { return key; }
+
+            @Override
+            public V getValue() { return unmask(cell(key.getY(), key.getX())); }
+
+            @Override
+            public V setValue(V value) { return unmask(cell(key.getY(), key.getX(), mask(value))); }
+
+            @Override
+            public boolean equals(Object object) {
+                return ((object instanceof Entry)
+                        && Objects.equals(getKey(), ((Entry<?,?>) object).getKey())
+                        && Objects.equals(getValue(), ((Entry<?,?>) object).getValue()));
+            }
+
+            @Override
+            public int hashCode() { return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue()); }
+
+            @Override
+            public String toString() { return getKey() + "=" + getValue(); }
+        }
+
+        private enum Null { VALUE }
+    }
+
+    /*
+     * Row-major array backend.
+     */
+    private static class Dense<V> extends Cells<V> {
+        private static final long serialVersionUID = -3568692473897750612L;
+
+        /** @serial */ private final Grid grid;
+
+        public Dense() { this(new Grid(), null, null); }
+
+        private Dense(Grid grid, Coordinate from, Coordinate to) {
+            super(from, to);
+
+            this.grid = grid;
+        }
+
+        @Override
+        protected Object cell(int y, int x) { return grid.get(y, x); }
+
+        @Override
+        protected Object cell(int y, int x, Object value) { return grid.set(y, x, value); }
+
+        @Override
+        protected int population() { return grid.size; }
+
+        @Override
+        protected void erase() { grid.clear(); }
+
+        @Override
+        public void retain(int y0, int x0, int yN, int xN) { grid.resize(y0, x0, yN, xN); }
+
+        @Override
+        protected Cells<V> view(Coordinate from, Coordinate to) { return new Dense<>(grid, from, to); }
+
+        @Override
+        protected Iterator<Coordinate> keys(boolean descending) {
+            return keys(descending, grid.y0, grid.x0, grid.yN, grid.xN);
+        }
+
+        /*
+         * Walks the rows and columns of the rectangle clipped to the
+         * grid.
+         */
+        @Override
+        protected Iterator<Coordinate> keys(boolean descending, int y0, int x0, int yN, int xN) {
+            Object[] array = grid.array;
+            int width = grid.xN - grid.x0;
+            int lower = (from != null) ? grid.lower(from) : 0;
+            int upper = (to != null) ? grid.lower(to) : array.length;
+            int r0 = Math.max(y0, grid.y0) - grid.y0;
+            int rN = Math.min(yN, grid.yN) - grid.y0;
+            int c0 = Math.max(x0, grid.x0) - grid.x0;
+            int cN = Math.min(xN, grid.xN) - grid.x0;
+
+            return new Iterator<Coordinate>() {
+                private int r = (c0 < cN) ? (descending ? (rN - 1) : r0) : rN;
+                private int c = descending ? (cN - 1) : c0;
+
+                @Override
+                public boolean hasNext() {
+                    if (array != grid.array) {
+                        throw new ConcurrentModificationException();
+                    }
+
+                    while (r0 <= r && r < rN) {
+                        int index = r * width + c;
+
+                        if (lower <= index && index < upper && array[index] != null) {
+                            break;
+                        }
+
+                        step();
+                    }
+
+                    return (r0 <= r && r < rN);
+                }
+
+                @Override
+                public Coordinate next() {
+                    if (! hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    Coordinate key = grid.coordinate(r * width + c);
+
+                    step();
+
+                    return key;
+                }
+
+                private void step() {
+                    if (descending) {
+                        c -= 1;
+
+                        if (c < c0) {
+                            c = cN - 1;
+                            r -= 1;
+                        }
+                    } else {
+                        c += 1;
+
+                        if (c >= cN) {
+                            c = c0;
+                            r += 1;
+                        }
+                    }
+                }
+            };
+        }
+    }
+
+    /*
+     * Tiled sparse backend.
+     */
+    private static class Tiled<V> extends Cells<V> {
+        private static final long serialVersionUID = -2684517299375801305L;
+
+        /** @serial */ private final Tiles tiles;
+
+        public Tiled() { this(new Tiles(), null, null); }
+
+        private Tiled(Tiles tiles, Coordinate from, Coordinate to) {
+            super(from, to);
+
+            this.tiles = tiles;
+        }
+
+        @Override
+        protected Object cell(int y, int x) { return tiles.get(y, x); }
+
+        @Override
+        protected Object cell(int y, int x, Object value) { return tiles.set(y, x, value); }
+
+        @Override
+        protected int population() { return tiles.size; }
+
+        @Override
+        protected void erase() { tiles.clear(); }
+
+        @Override
+        public void retain(int y0, int x0, int yN, int xN) { tiles.retain(y0, x0, yN, xN); }
+
+        @Override
+        protected Cells<V> view(Coordinate from, Coordinate to) { return new Tiled<>(tiles, from, to); }
+
+        @Override
+        protected Iterator<Coordinate> keys(boolean descending) { return keys(descending, null); }
+
+        @Override
+        protected Iterator<Coordinate> keys(boolean descending, int y0, int x0, int yN, int xN) {
+            return keys(descending, new int[] { y0, x0, yN, xN });
+        }
+
+        /*
+         * Iterates one band of tile rows at a time:  The keys in a band
+         * are collected (in order) from the band's tiles before the band
+         * is iterated.  Only the tiles that intersect the (optional)
+         * rectangle { y0, x0, yN, xN } are visited.
+         */
+        private Iterator<Coordinate> keys(boolean descending, int[] rectangle) {
+            int ty0 = (from != null) ? (from.getY() >> Tiles.SHIFT) : Integer.MIN_VALUE;
+            int tyN = (to != null) ? (to.getY() >> Tiles.SHIFT) : Integer.MAX_VALUE;
+            Predicate<Tile> predicate = t -> ty0 <= t.ty && t.ty <= tyN;
+
+            if (rectangle != null) {
+                predicate =
+                    predicate.and(t -> ((rectangle[0] >> Tiles.SHIFT) <= t.ty && t.ty <= ((rectangle[2] - 1) >> Tiles.SHIFT)
+                                        && (rectangle[1] >> Tiles.SHIFT) <= t.tx && t.tx <= ((rectangle[3] - 1) >> Tiles.SHIFT)));
+            }
+
+            Tile[] sorted = tiles.sorted(predicate);
+
+            return new Iterator<Coordinate>() {
+                private int start = 0;
+                private int end = sorted.length;
+                private Iterator<Coordinate> band = Collections.emptyIterator();
+
+                @Override
+                public boolean hasNext() {
+                    while ((! band.hasNext()) && start < end) {
+                        if (descending) {
+                            int i = end - 1;
+
+                            while (i > start && sorted[i - 1].ty == sorted[end - 1].ty) {
+                                i -= 1;
+                            }
+
+                            band = band(i, end);
+                            end = i;
+                        } else {
+                            int i = start + 1;
+
+                            while (i < end && sorted[i].ty == sorted[start].ty) {
+                                i += 1;
+                            }
+
+                            band = band(start, i);
+                            start = i;
+                        }
+                    }
+
+                    return band.hasNext();
+                }
+
+                @Override
+                public Coordinate next() {
+                    if (! hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    return band.next();
+                }
+
+                private Iterator<Coordinate> band(int start, int end) {
+                    List<Coordinate> list = new ArrayList<>();
+
+                    for (int r = 0; r < Tiles.SIZE; r += 1) {
+                        for (int i = start; i < end; i += 1) {
+                            Tile tile = sorted[i];
+
+                            for (int c = 0; c < Tiles.SIZE; c += 1) {
+                                if (tile.cells[(r << Tiles.SHIFT) + c] != null) {
+                                    int y = (tile.ty << Tiles.SHIFT) + r;
+                                    int x = (tile.tx << Tiles.SHIFT) + c;
+
+                                    if (inRange(y, x) && (rectangle == null || within(rectangle, y, x))) {
+                                        list.add(Coordinate.of(y, x));
+                                    }
+                                }
+                            }
+                        }
+                    }
+
+                    if (descending) {
+                        Collections.reverse(list);
+                    }
+
+                    return list.iterator();
+                }
+            };
+        }
+
+        private static boolean within(int[] rectangle, int y, int x) {
+            return (rectangle[0] <= y && y < rectangle[2] && rectangle[1] <= x && x < rectangle[3]);
+        }
+    }
+
+    /*
+     * Row-major Object[] spanning [y0, yN) x [x0, xN).  A null element is
+     * an empty cell.
+     */
+    private static class Grid implements Serializable {
+        private static final long serialVersionUID = -9086396236675680301L;
+
+        /** @serial */ private int y0 = 0;
+        /** @serial */ private int x0 = 0;
+        /** @serial */ private int yN = 0;
+        /** @serial */ private int xN = 0;
+        /** @serial */ private Object[] array = new Object[] { };
+        /** @serial */ private int size = 0;
+
+        public Grid() { }
+
+        public int index(int y, int x) {
+            return (y0 <= y && y < yN && x0 <= x && x < xN) ? ((y - y0) * (xN - x0) + (x - x0)) : -1;
+        }
+
+        public int lower(Coordinate key) {
+            int index = 0;
+
+            if (key.getY() >= yN) {
+                index = array.length;
+            } else if (key.getY() >= y0) {
+                int width = xN - x0;
+
+                index = (key.getY() - y0) * width + Math.max(0, Math.min(width, key.getX() - x0));
+            }
+
+            return index;
+        }
+
+        public Coordinate coordinate(int index) {
+            int width = xN - x0;
+
+            return Coordinate.of(y0 + index / width, x0 + index % width);
+        }
+
+        public Object get(int y, int x) {
+            int index = index(y, x);
+
+            return (index >= 0) ? array[index] : null;
+        }
+
+        public Object set(int y, int x, Object value) {
+            int index = index(y, x);
+
+            if (index < 0 && value != null) {
+                grow(y, x);
+                index = index(y, x);
+            }
+
+            return (index >= 0) ? set(index, value) : null;
+        }
+
+        public Object set(int index, Object value) {
+            Object old = array[index];
+
+            array[index] = value;
+
+            if (old == null && value != null) {
+                size += 1;
+            } else if (old != null && value == null) {
+                size -= 1;
+            }
+
+            return old;
+        }
+
+        public void clear() {
+            Arrays.fill(array, null);
+            size = 0;
+        }
+
+        private void grow(int y, int x) {
+            if (array.length == 0) {
+                resize(y, x, y + 1, x + 1);
+            } else {
+                int height = yN - y0;
+                int width = xN - x0;
+
+                resize((y < y0) ? Math.min(y, y0 - height) : y0,
+                       (x < x0) ? Math.min(x, x0 - width) : x0,
+                       (y >= yN) ? Math.max(y + 1, yN + height) : yN,
+                       (x >= xN) ? Math.max(x + 1, xN + width) : xN);
+            }
+        }
+
+        public void resize(int y0, int x0, int yN, int xN) {
+            long area = ((long) (yN - y0)) * (xN - x0);
+
+            if (area > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Area too large: " + area);
+            }
+
+            Object[] array = new Object[(int) area];
+            int size = 0;
+            int xL = Math.max(x0, this.x0);
+            int xR = Math.min(xN, this.xN);
+
+            if (xL < xR) {
+                for (int y = Math.max(y0, this.y0), n = Math.min(yN, this.yN); y < n; y += 1) {
+                    int from = (y - this.y0) * (this.xN - this.x0) + (xL - this.x0);
+                    int to = (y - y0) * (xN - x0) + (xL - x0);
+
+                    System.arraycopy(this.array, from, array, to, xR - xL);
+
+                    for (int i = to, j = to + (xR - xL); i < j; i += 1) {
+                        if (array[i] != null) {
+                            size += 1;
+                        }
+                    }
+                }
+            }
+
+            this.y0 = y0;
+            this.x0 = x0;
+            this.yN = yN;
+            this.xN = xN;
+            this.array = array;
+            this.size = size;
+        }
+    }
+
+    /*
+     * Open-addressing (linear probing) hash table of Tiles keyed by the
+     * packed tile id.  The packed id orders tiles by tile row and then
+     * tile column so sorting ids sorts tiles in Coordinate order.  A null
+     * cell is empty and a Tile is discarded when its last cell is cleared.
+     */
+    private static class Tiles implements Serializable {
+        private static final long serialVersionUID = 909565156617005423L;
+
+        public static final int SHIFT = 4;
+        public static final int SIZE = 1 << SHIFT;
+        public static final int MASK = SIZE - 1;
+
+        /** @serial */ private long[] ids = new long[16];
+        /** @serial */ private Tile[] table = new Tile[16];
+        /** @serial */ private int count = 0;
+        /** @serial */ private int size = 0;
+        private transient Tile last = null;
+
+        public Tiles() { }
+
+        public static long id(int ty, int tx) { return Coordinate.pack(ty, tx); }
+
+        private int slot(long id) {
+            long hash = id * 0x9E3779B97F4A7C15L;
+
+            return ((int) (hash ^ (hash >>> 32))) & (table.length - 1);
+        }
+
+        private Tile tile(int y, int x) {
+            int ty = y >> SHIFT;
+            int tx = x >> SHIFT;
+            Tile tile = last;
+
+            if (tile == null || tile.ty != ty || tile.tx != tx) {
+                long id = id(ty, tx);
+
+                tile = null;
+
+                for (int i = slot(id); table[i] != null; i = (i + 1) & (table.length - 1)) {
+                    if (ids[i] == id) {
+                        tile = table[i];
+                        break;
+                    }
+                }
+
+                if (tile != null) {
+                    last = tile;
+                }
+            }
+
+            return tile;
+        }
+
+        public Object get(int y, int x) {
+            Tile tile = tile(y, x);
+
+            return (tile != null) ? tile.cells[((y & MASK) << SHIFT) + (x & MASK)] : null;
+        }
+
+        public Object set(int y, int x, Object value) {
+            Object old = null;
+            Tile tile = tile(y, x);
+
+            if (tile == null && value != null) {
+                tile = add(new Tile(y >> SHIFT, x >> SHIFT));
+            }
+
+            if (tile != null) {
+                int index = ((y & MASK) << SHIFT) + (x & MASK);
+
+                old = tile.cells[index];
+                tile.cells[index] = value;
+
+                if (old == null && value != null) {
+                    tile.count += 1;
+                    size += 1;
+                } else if (old != null && value == null) {
+                    tile.count -= 1;
+                    size -= 1;
+
+                    if (tile.count == 0) {
+                        delete(tile);
+                    }
+                }
+            }
+
+            return old;
+        }
+
+        public void clear() {
+            Arrays.fill(ids, 0L);
+            Arrays.fill(table, null);
+            count = 0;
+            size = 0;
+            last = null;
+        }
+
+        /*
+         * Discards the Tiles outside the bounds and clears the cells
+         * outside the bounds of the Tiles that straddle them.
+         */
+        public void retain(int y0, int x0, int yN, int xN) {
+            for (Tile tile : tiles()) {
+                int ty0 = tile.ty << SHIFT;
+                int tx0 = tile.tx << SHIFT;
+                int r0 = Math.max(0, Math.min(SIZE, y0 - ty0));
+                int rN = Math.max(0, Math.min(SIZE, yN - ty0));
+                int c0 = Math.max(0, Math.min(SIZE, x0 - tx0));
+                int cN = Math.max(0, Math.min(SIZE, xN - tx0));
+
+                if (r0 == 0 && rN == SIZE && c0 == 0 && cN == SIZE) {
+                    continue;
+                }
+
+                int count = 0;
+
+                for (int r = 0; r < SIZE; r += 1) {
+                    for (int c = 0; c < SIZE; c += 1) {
+                        int index = (r << SHIFT) + c;
+
+                        if (r0 <= r && r < rN && c0 <= c && c < cN) {
+                            if (tile.cells[index] != null) {
+                                count += 1;
+                            }
+                        } else {
+                            tile.cells[index] = null;
+                        }
+                    }
+                }
+
+                size -= (tile.count - count);
+                tile.count = count;
+
+                if (tile.count == 0) {
+                    delete(tile);
+                }
+            }
+        }
+
+        /*
+         * The Tiles selected by the Predicate in Coordinate order.
+         */
+        public Tile[] sorted(Predicate<Tile> predicate) {
+            return Arrays.stream(table)
+                .filter(Objects::nonNull)
+                .filter(predicate)
+                .sorted(Comparator.comparingLong(t -> id(t.ty, t.tx)))
+                .toArray(Tile[]::new);
+        }
+
+        private Tile[] tiles() {
+            return Arrays.stream(table).filter(Objects::nonNull).toArray(Tile[]::new);
+        }
+
+        private Tile add(Tile tile) {
+            if (2 * (count + 1) > table.length) {
+                Tile[] tiles = tiles();
+
+                ids = new long[2 * table.length];
+                table = new Tile[2 * table.length];
+                count = 0;
+
+                for (Tile t : tiles) {
+                    insert(t);
+                }
+            }
+
+            insert(tile);
+            last = tile;
+
+            return tile;
+        }
+
+        private void insert(Tile tile) {
+            long id = id(tile.ty, tile.tx);
+            int i = slot(id);
+
+            while (table[i] != null) {
+                i = (i + 1) & (table.length - 1);
+            }
+
+            ids[i] = id;
+            table[i] = tile;
+            count += 1;
+        }
+
+        private void delete(Tile tile) {
+            long id = id(tile.ty, tile.tx);
+            int mask = table.length - 1;
+            int i = slot(id);
+
+            while (table[i] != tile) {
+                i = (i + 1) & mask;
+            }
+
+            table[i] = null;
+            count -= 1;
+
+            for (int j = (i + 1) & mask; table[j] != null; j = (j + 1) & mask) {
+                int k = slot(ids[j]);
+
+                if ((i <= j) ? (i < k && k <= j) : (i < k || k <= j)) {
+                    continue;
+                }
+
+                ids[i] = ids[j];
+                table[i] = table[j];
+                table[j] = null;
+                i = j;
+            }
+
+            if (last == tile) {
+                last = null;
+            }
+        }
+    }
+
+    /*
+     * SIZE x SIZE cells (row-major) at tile row ty and tile column tx.
+     */
+    private static class Tile implements Serializable {
+        private static final long serialVersionUID = -1696703621662220560L;
+
+        /** @serial */ public final int ty;
+        /** @serial */ public final int tx;
+        /** @serial */ public final Object[] cells = new Object[Tiles.SIZE * Tiles.SIZE];
+        /** @serial */ public int count = 0;
+
+        public Tile(int ty, int tx) {
+            this.ty = ty;
+            this.tx = tx;
+        }
+    }
+
+    private class BackedList extends AbstractList<V> {
+        private final int y0;
+        private final int x0;
+        private final int width;
+        private final int size;
+
+        public BackedList() {
+            super();
+
+            y0 = (getMin() != null) ? getMinY() : 0;
+            x0 = (getMin() != null) ? getMinX() : 0;
+            width = getColumnCount();
+            size = Math.toIntExact(((long) getRowCount()) * width);
+        }
+
+        @Override
+        public int size() { return size; }
+
+        @Override
+        public V get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+
+            return CoordinateMap.this.get(y0 + index / width, x0 + index % width);
         }
 
         @Override
         public V set(int index, V value) {
-            return CoordinateMap.this.put(list.get(index), value);
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+
+            return CoordinateMap.this.set(y0 + index / width, x0 + index % width, value);
         }
 
         @Override
@@ -18,13 +18,13 @@ package ball.util;
  * limitations under the License.
  * ##########################################################################
  */
+import java.math.BigInteger;
 import java.util.Iterator;
 import java.util.Spliterator;
 import java.util.Spliterators.AbstractSpliterator;
 import java.util.Spliterators;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
-import java.util.stream.LongStream;
 
 /**
  * {@link Spliterator} abstract base class that dispatches to
@@ -36,6 +36,7 @@ import java.util.stream.LongStream;
 public abstract class DispatchSpliterator<T> extends AbstractSpliterator<T> {
     private Iterator<Supplier<Spliterator<T>>> spliterators = null;
     private Spliterator<T> spliterator = null;
+    private long estimate;
 
     /**
      * See {@link AbstractSpliterator} constructor.
@@ -47,10 +48,14 @@ public abstract class DispatchSpliterator<T> extends AbstractSpliterator<T> {
      *                          source or elements.  If {@link #SIZED} is
      *                          reported then {@link.this}
      *                          {@link Spliterator} will additionally report
-     *                          {@link #SUBSIZED}.
+     *                          {@link #SUBSIZED}.  {@link #SIZED} and
+     *                          {@link #SUBSIZED} are not reported if the
+     *                          {@code estimate} is {@link Long#MAX_VALUE}.
      */
     protected DispatchSpliterator(long estimate, int characteristics) {
-        super(estimate, characteristics);
+        super(estimate, characteristics(estimate, characteristics));
+
+        this.estimate = estimate;
     }
 
     /**
@@ -69,7 +74,31 @@ public abstract class DispatchSpliterator<T> extends AbstractSpliterator<T> {
             spliterators = Spliterators.iterator(spliterators());
         }
 
-        return spliterators.hasNext() ? spliterators.next().get() : null;
+        Spliterator<T> spliterator = spliterators.hasNext() ? spliterators.next().get() : null;
+
+        if (spliterator != null && hasCharacteristics(SIZED)) {
+            estimate = Math.max(0, estimate - spliterator.estimateSize());
+        }
+
+        return spliterator;
+    }
+
+    /**
+     * {@inheritDoc}  If {@link.this} {@link Spliterator} is
+     * {@link #SIZED}, the size of each {@link Spliterator} handed off by
+     * {@link #trySplit()} is deducted so the estimate remains exact.
+     */
+    @Override
+    public long estimateSize() {
+        long size = estimate;
+
+        if (spliterator != null && size < Long.MAX_VALUE) {
+            long remaining = spliterator.estimateSize();
+
+            size = (size < Long.MAX_VALUE - remaining) ? (size + remaining) : Long.MAX_VALUE;
+        }
+
+        return size;
     }
 
     @Override
@@ -97,8 +126,8 @@ public abstract class DispatchSpliterator<T> extends AbstractSpliterator<T> {
 
     /**
      * Method to count the number of combinations of {@code [k0,kN]} size
-     * that may be chosen from a set of {@code n}-size (binomial
-     * coefficient).
+     * that may be chosen (in order) from a set of {@code n}-size.  See
+     * {@link #binomial(long,long)}.
      *
      * @param   n               The size of the set.
      * @param   k0              The beginning of the interval (inclusive) of
@@ -106,46 +135,188 @@ public abstract class DispatchSpliterator<T> extends AbstractSpliterator<T> {
      * @param   kN              The end of the interval (inclusive) of size
      *                          of the subsets to be chosen.
      *
-     * @return  The total number of combinations.
+     * @return  The total number of combinations saturated at
+     *          {@link Long#MAX_VALUE}.
      */
     protected static long binomial(long n, long k0, long kN) {
-        long size =
-            LongStream.rangeClosed(Math.min(k0, kN), Math.max(k0, kN))
-            .filter(t -> ! (n < t))
-            .map(t -> binomial(n, t))
-            .sum();
+        long size = 0;
+
+        for (long k = Math.min(k0, kN), kMax = Math.max(k0, kN); k <= kMax; k += 1) {
+            long count = binomial(n, k);
+
+            size = (size < Long.MAX_VALUE - count) ? (size + count) : Long.MAX_VALUE;
+        }
 
         return size;
     }
 
     /**
      * Method to count the number of combinations of {@code k}-size that may
-     * be chosen from a set of {@code n}-size (binomial coefficient).
+     * be chosen (in order) from a set of {@code n}-size.  Note: This is the
+     * falling factorial {@code n!/(n - k)!} (the number of
+     * {@code k}-permutations) and not the binomial coefficient.  See
+     * {@link #fallingFactorial(int,int)}.
      *
      * @param   n               The size of the set.
      * @param   k               The size of the subset to be chosen.
      *
-     * @return  The total number of {@code k}-combinations.
+     * @return  The total number of {@code k}-combinations saturated at
+     *          {@link Long#MAX_VALUE}.
      */
     protected static long binomial(long n, long k) {
         if (n < 0) {
             throw new IllegalStateException();
         }
 
-        long product = 1;
+        long count = 0;
 
-        if (k > 0) {
-            switch ((int) n) {
-            case 1:
-            case 0:
-                break;
+        if (! (k < 0 || n < k)) {
+            if (n < Counts.SIZE) {
+                count = Counts.FALLING[(int) n][(int) k];
+            } else {
+                count = 1;
 
-            default:
-                product = n * binomial(n - 1, k - 1);
-                break;
+                for (long i = n - k + 1; i <= n && count < Long.MAX_VALUE; i += 1) {
+                    count = (count < Long.MAX_VALUE / i) ? (count * i) : Long.MAX_VALUE;
+                }
             }
         }
 
-        return product;
+        return count;
+    }
+
+    /**
+     * Method to calculate the falling factorial {@code n!/(n - k)!} (the
+     * number of {@code k}-permutations of a set of {@code n}-size)
+     * exactly.
+     *
+     * @param   n               The size of the set.
+     * @param   k               The size of the subset to be chosen.
+     *
+     * @return  The falling factorial ({@code 0} if {@code k < 0} or
+     *          {@code n < k}).
+     */
+    public static BigInteger fallingFactorial(int n, int k) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n=" + n);
+        }
+
+        BigInteger count = BigInteger.ZERO;
+
+        if (! (k < 0 || n < k)) {
+            if (n < Counts.SIZE) {
+                count = Counts.FALLING_EXACT[n][k];
+            } else {
+                count = BigInteger.ONE;
+
+                for (int i = n - k + 1; i <= n; i += 1) {
+                    count = count.multiply(BigInteger.valueOf(i));
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Method to calculate the binomial coefficient {@code n!/(k!(n - k)!)}
+     * (the number of unordered {@code k}-subsets of a set of
+     * {@code n}-size) exactly.
+     *
+     * @param   n               The size of the set.
+     * @param   k               The size of the subset to be chosen.
+     *
+     * @return  The binomial coefficient ({@code 0} if {@code k < 0} or
+     *          {@code n < k}).
+     */
+    public static BigInteger binomialCoefficient(int n, int k) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n=" + n);
+        }
+
+        BigInteger count = BigInteger.ZERO;
+
+        if (! (k < 0 || n < k)) {
+            if (n < Counts.SIZE) {
+                count = Counts.PASCAL[n][k];
+            } else {
+                k = Math.min(k, n - k);
+                count = BigInteger.ONE;
+
+                for (int i = 1; i <= k; i += 1) {
+                    count =
+                        count.multiply(BigInteger.valueOf(n - k + i))
+                        .divide(BigInteger.valueOf(i));
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Method to convert a count to a {@code long} saturated at
+     * {@link Long#MAX_VALUE} (suitable for
+     * {@link Spliterator#estimateSize()}).
+     *
+     * @param   count           The count.
+     *
+     * @return  The saturated {@code long} value.
+     */
+    public static long saturated(BigInteger count) {
+        return (count.bitLength() < Long.SIZE) ? count.longValue() : Long.MAX_VALUE;
+    }
+
+    /**
+     * Method to adjust {@link Spliterator} characteristics for an estimate
+     * size:  {@link #SIZED} and {@link #SUBSIZED} are dropped if the
+     * estimate is saturated ({@link Long#MAX_VALUE}).
+     *
+     * @param   estimate        The estimated size.
+     * @param   characteristics The {@link Spliterator} characteristics.
+     *
+     * @return  The adjusted characteristics.
+     */
+    public static int characteristics(long estimate, int characteristics) {
+        if (estimate == Long.MAX_VALUE) {
+            characteristics &= ~(SIZED | SUBSIZED);
+        }
+
+        return characteristics;
+    }
+
+    /*
+     * Tables of the counts for n < SIZE calculated once: PASCAL[n][k] and
+     * FALLING_EXACT[n][k] are exact and FALLING[n][k] is saturated.
+     */
+    private static class Counts {
+        public static final int SIZE = 64;
+        public static final BigInteger[][] PASCAL = new BigInteger[SIZE][];
+        public static final BigInteger[][] FALLING_EXACT = new BigInteger[SIZE][];
+        public static final long[][] FALLING = new long[SIZE][];
+
+        static {
+            for (int n = 0; n < SIZE; n += 1) {
+                PASCAL[n] = new BigInteger[n + 1];
+                FALLING_EXACT[n] = new BigInteger[n + 1];
+                FALLING[n] = new long[n + 1];
+
+                for (int k = 0; k <= n; k += 1) {
+                    if (k == 0 || k == n) {
+                        PASCAL[n][k] = BigInteger.ONE;
+                    } else {
+                        PASCAL[n][k] = PASCAL[n - 1][k - 1].add(PASCAL[n - 1][k]);
+                    }
+
+                    if (k == 0) {
+                        FALLING_EXACT[n][k] = BigInteger.ONE;
+                    } else {
+                        FALLING_EXACT[n][k] = FALLING_EXACT[n][k - 1].multiply(BigInteger.valueOf(n - k + 1));
+                    }
+
+                    FALLING[n][k] = saturated(FALLING_EXACT[n][k]);
+                }
+            }
+        }
     }
 }
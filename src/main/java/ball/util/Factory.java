@@ -18,23 +18,48 @@ package ball.util;
  * limitations under the License.
  * ##########################################################################
  */
+import ball.lang.PrimitiveTypeMap;
 import java.beans.ConstructorProperties;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import static java.util.Comparator.comparing;
+import static java.lang.reflect.Modifier.isAbstract;
 import static java.lang.reflect.Modifier.isStatic;
 import static java.lang.reflect.Modifier.isPublic;
 
 /**
- * {@link Factory} base class.
+ * {@link Factory} base class.  {@link Factory} instances for a type may
+ * be shared through {@link #of(Class)}; shared instances are read-only.
+ * Lookups by argument types are
+ * resolved once per signature to the most specific applicable
+ * {@link Member} (see {@link #isApplicable(Class[],Class...)}) and the
+ * result (including the absence of a {@link Member}) is cached in a hash
+ * index.  Resolved {@link Member}s are compiled to {@link MethodHandle}s
+ * on first use so subsequent {@link #apply(Member,Object...)} calls avoid
+ * reflective invocation.
  *
  * @param       <T>             The type of {@link Object} this
  *                              {@link Factory} will produce.
@@ -44,8 +69,55 @@ import static java.lang.reflect.Modifier.isPublic;
 public class Factory<T> extends TreeMap<Class<?>[],Member> {
     private static final long serialVersionUID = -5733222257965875050L;
 
+    private static final ClassValue<Factory<?>> CACHE =
+        new ClassValue<Factory<?>>() {
+            @Override
+            protected Factory<?> computeValue(Class<?> type) {
+                return new Shared<>(type);
+            }
+        };
+
+    private static final Map<Class<?>,Class<?>> UNBOXED = new HashMap<>();
+    private static final Map<Class<?>,List<Class<?>>> WIDENING = new HashMap<>();
+
+    static {
+        PrimitiveTypeMap.INSTANCE.forEach((k, v) -> UNBOXED.put(v, k));
+
+        WIDENING.put(Short.TYPE, Arrays.asList(Byte.TYPE));
+        WIDENING.put(Integer.TYPE, Arrays.asList(Byte.TYPE, Short.TYPE, Character.TYPE));
+        WIDENING.put(Long.TYPE, Arrays.asList(Byte.TYPE, Short.TYPE, Character.TYPE, Integer.TYPE));
+        WIDENING.put(Float.TYPE, Arrays.asList(Byte.TYPE, Short.TYPE, Character.TYPE, Integer.TYPE, Long.TYPE));
+        WIDENING.put(Double.TYPE,
+                     Arrays.asList(Byte.TYPE, Short.TYPE, Character.TYPE, Integer.TYPE, Long.TYPE, Float.TYPE));
+    }
+
     /** @serial */ private final Class<? extends T> type;
     /** @serial */ private final Object factory;
+    private transient volatile Map<Signature,Optional<Member>> resolved = null;
+    private transient volatile Map<Member,Invoker> invokers = null;
+
+    /**
+     * Static method to get the shared {@link Factory} for a type.  The
+     * {@link Factory} is computed once per {@link Class} (and is therefore
+     * specific to the {@link Class}'s {@link ClassLoader}) and is retained
+     * only as long as the {@link Class} itself.  The shared
+     * {@link Factory} may not be modified:  Any attempt to add or remove
+     * a {@link Member} throws {@link UnsupportedOperationException}.
+     *
+     * @param   type            The {@link Class} of {@link Object} the
+     *                          {@link Factory} will produce.
+     * @param   <T>             The type of {@link Object} the
+     *                          {@link Factory} will produce.
+     *
+     * @return  The shared {@link Factory}.
+     *
+     * @throws  NullPointerException
+     *                          If {@code type} is {@code null}.
+     */
+    @SuppressWarnings({ "unchecked" })
+    public static <T> Factory<T> of(Class<T> type) {
+        return (Factory<T>) CACHE.get(type);
+    }
 
     /**
      * Sole public constructor.
@@ -84,7 +156,7 @@ public class Factory<T> extends TreeMap<Class<?>[],Member> {
                 .filter(t -> isPublic(t.getModifiers()))
                 .filter(t -> type.isAssignableFrom(t.getReturnType()))
                 .filter(t -> set.contains(t.getName()))
-                .forEach(t -> putIfAbsent(t.getParameterTypes(), t));
+                .forEach(t -> add(t.getParameterTypes(), t));
         }
 
         Arrays.stream(type.getMethods())
@@ -92,11 +164,17 @@ public class Factory<T> extends TreeMap<Class<?>[],Member> {
                           && isStatic(t.getModifiers())))
             .filter(t -> type.isAssignableFrom(t.getReturnType()))
             .filter(t -> (set.contains(t.getName())))
-            .forEach(t -> putIfAbsent(t.getParameterTypes(), t));
+            .forEach(t -> add(t.getParameterTypes(), t));
 
         Arrays.stream(type.getConstructors())
             .filter(t -> isPublic(t.getModifiers()))
-            .forEach(t -> putIfAbsent(t.getParameterTypes(), t));
+            .forEach(t -> add(t.getParameterTypes(), t));
+    }
+
+    private void add(Class<?>[] parameters, Member member) {
+        if (! super.containsKey(parameters)) {
+            super.put(parameters, member);
+        }
     }
 
     /**
@@ -221,16 +299,7 @@ public class Factory<T> extends TreeMap<Class<?>[],Member> {
      *          {@code false} otherwise.
      */
     public boolean hasFactoryMethodFor(Class<?>... parameters) {
-        boolean hasMember = false;
-
-        try {
-            getFactoryMethod(parameters);
-            hasMember = (get(parameters) != null);
-        } catch (NoSuchMethodException exception) {
-            hasMember = false;
-        }
-
-        return hasMember;
+        return get(parameters) != null;
     }
 
     /**
@@ -248,11 +317,13 @@ public class Factory<T> extends TreeMap<Class<?>[],Member> {
      *                          {@link Method} does not exist.
      */
     public Member getFactoryMethod(Class<?>... parameters) throws NoSuchMethodException {
-        if (! containsKey(parameters)) {
-            put(parameters, getType().getConstructor(parameters));
+        Member member = get(parameters);
+
+        if (member == null) {
+            throw new NoSuchMethodException(getType().getName() + Arrays.toString(parameters));
         }
 
-        return get(parameters);
+        return member;
     }
 
     /**
@@ -282,55 +353,144 @@ public class Factory<T> extends TreeMap<Class<?>[],Member> {
      */
     public T apply(Member member, Object... arguments) throws IllegalAccessException,
                                                               InstantiationException, InvocationTargetException {
-        Object object = null;
+        return getType().cast(invoker(member).invoke(arguments));
+    }
+
+    private Invoker invoker(Member member) throws IllegalAccessException, InstantiationException {
+        Map<Member,Invoker> invokers = this.invokers;
+
+        if (invokers == null) {
+            synchronized (this) {
+                if (this.invokers == null) {
+                    this.invokers = new ConcurrentHashMap<>();
+                }
+
+                invokers = this.invokers;
+            }
+        }
+
+        Invoker invoker = invokers.get(member);
 
-        if (member instanceof Method) {
-            object = ((Method) member).invoke(factory, arguments);
-        } else if (member instanceof Constructor) {
-            object = ((Constructor) member).newInstance(arguments);
-        } else if (member instanceof Field) {
-            object = ((Field) member).get(null);
-        } else {
-            throw new IllegalArgumentException("member=" + member);
+        if (invoker == null) {
+            invoker = new Invoker(member, factory);
+            invokers.putIfAbsent(member, invoker);
         }
 
-        return getType().cast(object);
+        return invoker;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * If {@code key} is a {@link Class} array with no exact match, the
+     * most specific {@link Member} whose parameters are applicable to
+     * the argument types is returned.  If more than one {@link Member} is
+     * maximally specific, the first in map order is selected.
+     */
     @Override
     public Member get(Object key) {
         Member value = null;
 
         if (key instanceof Class<?>[]) {
-            if (! super.containsKey(key)) {
-                for (Map.Entry<Class<?>[],Member> entry : entrySet()) {
-                    if (isApplicable(entry.getKey(), (Class<?>[]) key)) {
-                        value = entry.getValue();
-                        break;
+            Map<Signature,Optional<Member>> resolved = this.resolved;
+
+            if (resolved == null) {
+                synchronized (this) {
+                    if (this.resolved == null) {
+                        this.resolved = new ConcurrentHashMap<>();
                     }
+
+                    resolved = this.resolved;
                 }
+            }
 
-                super.put((Class<?>[]) key, value);
+            Signature signature = new Signature((Class<?>[]) key);
+            Optional<Member> member = resolved.get(signature);
+
+            if (member == null) {
+                member = Optional.ofNullable(resolve(signature.types));
+                resolved.putIfAbsent(signature, member);
             }
 
-            value = super.get(key);
+            value = member.orElse(null);
         }
 
         return value;
     }
 
+    @Override
+    public Member put(Class<?>[] key, Member value) {
+        try {
+            return super.put(key, value);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public Member remove(Object key) {
+        try {
+            return super.remove(key);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            super.clear();
+        } finally {
+            invalidate();
+        }
+    }
+
+    /*
+     * The index is discarded (rather than cleared) so a resolution that
+     * overlaps a modification caches its result in the discarded index.
+     */
+    private void invalidate() { resolved = null; }
+
+    private Member resolve(Class<?>[] arguments) {
+        Member member = super.get(arguments);
+
+        if (member == null) {
+            Class<?>[] best = null;
+
+            for (boolean boxing : new boolean[] { false, true }) {
+                for (Map.Entry<Class<?>[],Member> entry : super.entrySet()) {
+                    Class<?>[] parameters = entry.getKey();
+
+                    if (isApplicable(parameters, arguments, boxing)) {
+                        if (best == null || isApplicable(best, parameters, true) && (! isApplicable(parameters, best, true))) {
+                            best = parameters;
+                            member = entry.getValue();
+                        }
+                    }
+                }
+
+                if (member != null) {
+                    break;
+                }
+            }
+        }
+
+        return member;
+    }
+
     /**
      * Convenience method to get the types of an argument array.
      *
      * @param   arguments       The argument array.
      *
-     * @return  An array of types ({@link Class}s).
+     * @return  An array of types ({@link Class}s); {@code null} for any
+     *          {@code null} argument.
      */
     protected static Class<?>[] typesOf(Object... arguments) {
         Class<?>[] types = new Class<?>[arguments.length];
 
         for (int i = 0; i < types.length; i += 1) {
-            types[i] = arguments[i].getClass();
+            types[i] = (arguments[i] != null) ? arguments[i].getClass() : null;
         }
 
         return types;
@@ -339,27 +499,289 @@ public class Factory<T> extends TreeMap<Class<?>[],Member> {
     /**
      * Method to determine if an argument of the specified types may be
      * applied to a method or constructor with the specified parameters.
-     *
-     * @see Class#isAssignableFrom(Class)
+     * Each argument must be convertible to its corresponding parameter by
+     * a method invocation conversion:  identity or widening reference
+     * conversion (see {@link Class#isAssignableFrom(Class)}), primitive
+     * widening, or boxing/unboxing (optionally followed by widening).  A
+     * {@code null} argument type matches any reference parameter type.
      *
      * @param   parameters      The parameter types.
      * @param   arguments       The argument types.
      *
      * @return  {@code true} if the length of the argument array is the same
-     *          as the length of the parameter array and each parameter is
-     *          assignable from its corresponding argument; {@code false}
+     *          as the length of the parameter array and each argument is
+     *          convertible to its corresponding parameter; {@code false}
      *          otherwise.
      */
     protected static boolean isApplicable(Class<?>[] parameters, Class<?>... arguments) {
+        return isApplicable(parameters, arguments, true);
+    }
+
+    private static boolean isApplicable(Class<?>[] parameters, Class<?>[] arguments, boolean boxing) {
         boolean match = (parameters.length == arguments.length);
 
         for (int i = 0; match && i < arguments.length; i += 1) {
-            match &= parameters[i].isAssignableFrom(arguments[i]);
+            match &= isConvertible(parameters[i], arguments[i], boxing);
         }
 
         return match;
     }
 
+    private static boolean isConvertible(Class<?> parameter, Class<?> argument, boolean boxing) {
+        boolean convertible = false;
+
+        if (argument == null) {
+            convertible = (! parameter.isPrimitive());
+        } else if (parameter.isAssignableFrom(argument)) {
+            convertible = true;
+        } else if (parameter.isPrimitive() && argument.isPrimitive()) {
+            convertible = WIDENING.getOrDefault(parameter, Collections.emptyList()).contains(argument);
+        } else if (boxing) {
+            if (argument.isPrimitive()) {
+                convertible = parameter.isAssignableFrom(PrimitiveTypeMap.asBoxedType(argument));
+            } else if (parameter.isPrimitive()) {
+                Class<?> unboxed = UNBOXED.get(argument);
+
+                convertible = (unboxed != null && isConvertible(parameter, unboxed, false));
+            }
+        }
+
+        return convertible;
+    }
+
+    /*
+     * Parameter type tuple with a precomputed hash code.
+     */
+    private static class Signature {
+        private final Class<?>[] types;
+        private final int hashCode;
+
+        public Signature(Class<?>[] types) {
+            this.types = types.clone();
+            this.hashCode = Arrays.hashCode(this.types);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return (object instanceof Signature
+                    && hashCode == ((Signature) object).hashCode
+                    && Arrays.equals(types, ((Signature) object).types));
+        }
+
+        @Override
+        public int hashCode() { return hashCode; }
+
+        @Override
+        public String toString() { return Arrays.toString(types); }
+    }
+
+    /*
+     * Compiled Member invocation:  The MethodHandle is adapted to
+     * (Object[])Object so it may be called with invokeExact.  The argument
+     * checks preserve the reflective IllegalArgumentException semantics;
+     * any Throwable thrown by the target is wrapped in an
+     * InvocationTargetException.
+     */
+    private static class Invoker {
+        private static final MethodType TYPE = MethodType.methodType(Object.class, Object[].class);
+
+        private final Member member;
+        private final Class<?>[] parameters;
+        private final MethodHandle handle;
+
+        public Invoker(Member member, Object factory) throws IllegalAccessException, InstantiationException {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = null;
+
+            this.member = member;
+
+            if (member instanceof Method) {
+                Method method = (Method) member;
+
+                parameters = method.getParameterTypes();
+                handle = lookup.unreflect(method);
+
+                if (! isStatic(method.getModifiers())) {
+                    if (factory == null) {
+                        throw new IllegalArgumentException("member=" + member);
+                    }
+
+                    handle = handle.bindTo(factory);
+                }
+            } else if (member instanceof Constructor) {
+                Constructor<?> constructor = (Constructor<?>) member;
+
+                if (isAbstract(constructor.getDeclaringClass().getModifiers())) {
+                    throw new InstantiationException(constructor.getDeclaringClass().getName());
+                }
+
+                parameters = constructor.getParameterTypes();
+                handle = lookup.unreflectConstructor(constructor);
+            } else if (member instanceof Field && isStatic(member.getModifiers())) {
+                parameters = new Class<?>[] { };
+                handle = lookup.unreflectGetter((Field) member);
+            } else {
+                throw new IllegalArgumentException("member=" + member);
+            }
+
+            this.handle = handle.asSpreader(Object[].class, parameters.length).asType(TYPE);
+        }
+
+        public Object invoke(Object... arguments) throws InvocationTargetException {
+            if (arguments == null) {
+                arguments = new Object[] { };
+            }
+
+            if (arguments.length != parameters.length) {
+                throw new IllegalArgumentException("wrong number of arguments");
+            }
+
+            for (int i = 0; i < parameters.length; i += 1) {
+                if (! isConvertible(parameters[i], (arguments[i] != null) ? arguments[i].getClass() : null, true)) {
+                    throw new IllegalArgumentException("argument type mismatch");
+                }
+            }
+
+            try {
+                return (Object) handle.invokeExact(arguments);
+            } catch (Throwable throwable) {
+                throw new InvocationTargetException(throwable);
+            }
+        }
+
+        @Override
+        public String toString() { return String.valueOf(member); }
+    }
+
+    /*
+     * Read-only Factory shared through Factory.of(Class).  The Members are
+     * added by the Factory constructor through TreeMap.put(Object,Object)
+     * directly; every public mutator (including those of the views)
+     * throws UnsupportedOperationException.
+     */
+    private static class Shared<T> extends Factory<T> {
+        private static final long serialVersionUID = 6385725718302746411L;
+
+        public Shared(Class<T> type) { super(type, null); }
+
+        @Override
+        public Member put(Class<?>[] key, Member value) { throw new UnsupportedOperationException(); }
+
+        @Override
+        public void putAll(Map<? extends Class<?>[],? extends Member> map) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Member remove(Object key) { throw new UnsupportedOperationException(); }
+
+        @Override
+        public void clear() { throw new UnsupportedOperationException(); }
+
+        @Override
+        public Map.Entry<Class<?>[],Member> pollFirstEntry() { throw new UnsupportedOperationException(); }
+
+        @Override
+        public Map.Entry<Class<?>[],Member> pollLastEntry() { throw new UnsupportedOperationException(); }
+
+        @Override
+        public Member putIfAbsent(Class<?>[] key, Member value) { throw new UnsupportedOperationException(); }
+
+        @Override
+        public boolean remove(Object key, Object value) { throw new UnsupportedOperationException(); }
+
+        @Override
+        public boolean replace(Class<?>[] key, Member oldValue, Member newValue) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Member replace(Class<?>[] key, Member value) { throw new UnsupportedOperationException(); }
+
+        @Override
+        public void replaceAll(BiFunction<? super Class<?>[],? super Member,? extends Member> function) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Member computeIfAbsent(Class<?>[] key, Function<? super Class<?>[],? extends Member> function) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Member computeIfPresent(Class<?>[] key,
+                                       BiFunction<? super Class<?>[],? super Member,? extends Member> function) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Member compute(Class<?>[] key,
+                              BiFunction<? super Class<?>[],? super Member,? extends Member> function) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Member merge(Class<?>[] key, Member value,
+                            BiFunction<? super Member,? super Member,? extends Member> function) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Set<Map.Entry<Class<?>[],Member>> entrySet() {
+            return Collections.unmodifiableSet(super.entrySet());
+        }
+
+        @Override
+        public Set<Class<?>[]> keySet() { return navigableKeySet(); }
+
+        @Override
+        public NavigableSet<Class<?>[]> navigableKeySet() {
+            return Collections.unmodifiableNavigableSet(super.navigableKeySet());
+        }
+
+        @Override
+        public NavigableSet<Class<?>[]> descendingKeySet() {
+            return Collections.unmodifiableNavigableSet(super.descendingKeySet());
+        }
+
+        @Override
+        public Collection<Member> values() { return Collections.unmodifiableCollection(super.values()); }
+
+        @Override
+        public NavigableMap<Class<?>[],Member> descendingMap() {
+            return Collections.unmodifiableNavigableMap(super.descendingMap());
+        }
+
+        @Override
+        public NavigableMap<Class<?>[],Member> subMap(Class<?>[] fromKey, boolean fromInclusive,
+                                                      Class<?>[] toKey, boolean toInclusive) {
+            return Collections.unmodifiableNavigableMap(super.subMap(fromKey, fromInclusive, toKey, toInclusive));
+        }
+
+        @Override
+        public NavigableMap<Class<?>[],Member> headMap(Class<?>[] toKey, boolean inclusive) {
+            return Collections.unmodifiableNavigableMap(super.headMap(toKey, inclusive));
+        }
+
+        @Override
+        public NavigableMap<Class<?>[],Member> tailMap(Class<?>[] fromKey, boolean inclusive) {
+            return Collections.unmodifiableNavigableMap(super.tailMap(fromKey, inclusive));
+        }
+
+        @Override
+        public SortedMap<Class<?>[],Member> subMap(Class<?>[] fromKey, Class<?>[] toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        @Override
+        public SortedMap<Class<?>[],Member> headMap(Class<?>[] toKey) { return headMap(toKey, false); }
+
+        @Override
+        public SortedMap<Class<?>[],Member> tailMap(Class<?>[] fromKey) { return tailMap(fromKey, true); }
+
+        private Object readResolve() { return of(getType()); }
+    }
+
     private class CandidateSet extends TreeSet<String> {
         private static final long serialVersionUID = -7927801377734740425L;
 
@@ -20,10 +20,10 @@ package ball.util;
  */
 import java.io.Serializable;
 import java.util.AbstractMap;
-import java.util.ArrayList;
+import java.util.AbstractSet;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -31,6 +31,10 @@ import java.util.Set;
  * {@link Map}.  Subclass designers should override {@link #entrySet()}
  * first.  All implemented methods simply pass the call to the wrapped
  * {@link Map} (all other methods are implemented by {@link AbstractMap}).
+ * The {@link #entrySet()} (and therefore the {@link AbstractMap}
+ * {@link #keySet()} and {@link #values()}) is a live view of the wrapped
+ * {@link Map}:  Nothing is copied and removals and
+ * {@link java.util.Map.Entry#setValue(Object)} write through.
  *
  * @param       <K>             The key type.
  * @param       <V>             The value type.
@@ -59,6 +63,18 @@ public class MapView<K,V> extends AbstractMap<K,V> implements Serializable {
      */
     protected Map<K,V> map() { return map; }
 
+    @Override
+    public int size() { return map().size(); }
+
+    @Override
+    public boolean isEmpty() { return map().isEmpty(); }
+
+    @Override
+    public boolean containsKey(Object key) { return map().containsKey(key); }
+
+    @Override
+    public boolean containsValue(Object value) { return map().containsValue(value); }
+
     @Override
     public V get(Object key) { return map().get(key); }
 
@@ -71,24 +87,37 @@ public class MapView<K,V> extends AbstractMap<K,V> implements Serializable {
     @Override
     public void clear() { map().clear(); }
 
+    /**
+     * Callback method invoked after an entry is removed through the
+     * {@link #entrySet()} (or {@link #keySet()} or {@link #values()})
+     * {@link Iterator}.  The default implementation does nothing.
+     *
+     * @param   key             The removed key.
+     */
+    protected void removed(K key) { }
+
+    /**
+     * Callback method invoked after the value of an entry is set through
+     * {@link java.util.Map.Entry#setValue(Object)} on an entry of the
+     * {@link #entrySet()}.  The default implementation does nothing.
+     *
+     * @param   key             The updated key.
+     */
+    protected void updated(K key) { }
+
     /**
      * Method returns a single {@link Set} backed by {@link #map()}.
-     * Subclass implementations should update {@link #entrySet}.
      *
      * @return  {@link #entrySet}
      */
     @Override
-    public Set<Entry<K,V>> entrySet() {
-        entrySet.clear();
-        entrySet.addAll(map().entrySet());
-
-        return entrySet;
-    }
+    public Set<Entry<K,V>> entrySet() { return entrySet; }
 
     /**
-     * {@link #entrySet} implementation class.
+     * {@link #entrySet} implementation class:  A live view of the
+     * {@link #map()} {@link Map#entrySet()}.
      */
-    protected class EntrySet extends LinkedHashSet<Entry<K,V>> {
+    protected class EntrySet extends AbstractSet<Entry<K,V>> implements Serializable {
         private static final long serialVersionUID = 5015923978722180032L;
 
         /**
@@ -96,9 +125,18 @@ public class MapView<K,V> extends AbstractMap<K,V> implements Serializable {
          */
         public EntrySet() { super(); }
 
+        @Override
+        public int size() { return MapView.this.size(); }
+
+        @Override
+        public boolean isEmpty() { return MapView.this.isEmpty(); }
+
+        @Override
+        public boolean contains(Object object) { return map().entrySet().contains(object); }
+
         @Override
         public boolean remove(Object object) {
-            boolean changed = super.remove(object);
+            boolean changed = contains(object);
 
             if (changed) {
                 MapView.this.remove(((Entry<?,?>) object).getKey());
@@ -108,21 +146,17 @@ public class MapView<K,V> extends AbstractMap<K,V> implements Serializable {
         }
 
         @Override
-        public Iterator<Entry<K,V>> iterator() {
-            ArrayList<Entry<K,V>> list = new ArrayList<>();
-            Iterator<Entry<K,V>> iterator = super.iterator();
+        public void clear() { MapView.this.clear(); }
 
-            while (iterator.hasNext()) {
-                list.add(iterator.next());
-            }
-
-            return new EntryIterator(list.iterator());
+        @Override
+        public Iterator<Entry<K,V>> iterator() {
+            return new EntryIterator(map().entrySet().iterator());
         }
     }
 
     private class EntryIterator implements Iterator<Entry<K,V>> {
         private final Iterator<Entry<K,V>> iterator;
-        private Entry<K,V> current = null;
+        private K current = null;
 
         public EntryIterator(Iterator<Entry<K,V>> iterator) {
             this.iterator = iterator;
@@ -133,18 +167,54 @@ public class MapView<K,V> extends AbstractMap<K,V> implements Serializable {
 
         @Override
         public Entry<K,V> next() {
-            current = iterator.next();
+            Entry<K,V> entry = iterator.next();
+
+            current = entry.getKey();
 
-            return current;
+            return new ViewEntry(entry);
         }
 
         @Override
         public void remove() {
             iterator.remove();
-            MapView.this.remove(current.getKey());
+            removed(current);
         }
 
         @Override
         public String toString() { return iterator.toString(); }
     }
+
+    private class ViewEntry implements Entry<K,V> {
+        private final Entry<K,V> entry;
+
+        public ViewEntry(Entry<K,V> entry) { this.entry = entry; }
+
+        @Override
+        public K getKey() { return entry.getKey(); }
+
+        @Override
+        public V getValue() { return entry.getValue(); }
+
+        @Override
+        public V setValue(V value) {
+            V old = entry.setValue(value);
+
+            updated(getKey());
+
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return (object instanceof Entry
+                    && Objects.equals(getKey(), ((Entry<?,?>) object).getKey())
+                    && Objects.equals(getValue(), ((Entry<?,?>) object).getValue()));
+        }
+
+        @Override
+        public int hashCode() { return entry.hashCode(); }
+
+        @Override
+        public String toString() { return entry.toString(); }
+    }
 }
@@ -0,0 +1,339 @@
+package ball.util;
+/*-
+ * ##########################################################################
+ * Utilities
+ * %%
+ * Copyright (C) 2008 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.util.Collections;
+import java.util.EventListener;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link ConcurrentMapView} that notifies {@link Listener}s of changes
+ * asynchronously:  Writers only queue the modified key (without locking)
+ * and the changes are delivered in coalesced batches (the
+ * {@link Set} of distinct keys modified since the previous batch) on the
+ * specified {@link Executor}.  For example, a Swing model may specify
+ * {@code SwingUtilities::invokeLater} so the {@link Listener}s are called
+ * on the event dispatch thread while producer threads populate the map.
+ * A key is queued after its modification completes so a {@link Listener}
+ * always observes (at least) the modification it is notified of.  Only
+ * one batch is in progress at any time so {@link Listener}s are not
+ * called concurrently.  A {@link RuntimeException} thrown by a
+ * {@link Listener} is passed to the delivering {@link Thread}'s
+ * {@link Thread.UncaughtExceptionHandler} and does not prevent delivery
+ * to the other {@link Listener}s.  The {@link Executor} and the
+ * {@link Listener}s are not serialized:  A deserialized
+ * {@link ObservableMapView} delivers on the
+ * {@link ForkJoinPool#commonPool()} and has no {@link Listener}s.
+ *
+ * @param       <K>             The key type.
+ * @param       <V>             The value type.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+public class ObservableMapView<K,V> extends ConcurrentMapView<K,V> {
+    private static final long serialVersionUID = 2853263326471342150L;
+
+    /**
+     * The maximum number of queued modifications delivered in one batch.
+     */
+    public static final int MAX_BATCH = 1 << 16;
+
+    private final transient Executor executor;
+    private final transient List<Listener<K,V>> listeners = new CopyOnWriteArrayList<>();
+    private final transient Queue<K> queue = new ConcurrentLinkedQueue<>();
+    private final transient AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    /**
+     * Constructor to deliver batches on the
+     * {@link ForkJoinPool#commonPool()}.
+     *
+     * @param   map             The {@link ConcurrentMap}.
+     */
+    public ObservableMapView(ConcurrentMap<K,V> map) {
+        this(map, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param   map             The {@link ConcurrentMap}.
+     * @param   executor        The {@link Executor} to deliver batches.
+     */
+    public ObservableMapView(ConcurrentMap<K,V> map, Executor executor) {
+        super(map);
+
+        this.executor = requireNonNull(executor);
+    }
+
+    /**
+     * Method to add a {@link Listener}.
+     *
+     * @param   listener        The {@link Listener}.
+     */
+    public void addListener(Listener<K,V> listener) {
+        listeners.add(requireNonNull(listener));
+    }
+
+    /**
+     * Method to remove a {@link Listener}.
+     *
+     * @param   listener        The {@link Listener}.
+     */
+    public void removeListener(Listener<K,V> listener) { listeners.remove(listener); }
+
+    /**
+     * Method to queue a modified key and schedule a batch (if one is not
+     * already scheduled).
+     *
+     * @param   key             The modified key.
+     */
+    protected void changed(K key) {
+        queue.offer(key);
+
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::deliver);
+        }
+    }
+
+    /*
+     * The flag remains set until the Listeners have returned so no other
+     * batch may be scheduled concurrently.  The queue is checked again
+     * after the flag is cleared so a key queued during the delivery
+     * (that could not schedule a batch) is delivered in another batch.
+     */
+    private void deliver() {
+        Set<K> keys = new LinkedHashSet<>();
+
+        for (int i = 0; i < MAX_BATCH; i += 1) {
+            K key = queue.poll();
+
+            if (key != null) {
+                keys.add(key);
+            } else {
+                break;
+            }
+        }
+
+        try {
+            if (! keys.isEmpty()) {
+                Set<K> set = Collections.unmodifiableSet(keys);
+
+                for (Listener<K,V> listener : listeners) {
+                    try {
+                        listener.mapChanged(this, set);
+                    } catch (RuntimeException exception) {
+                        Thread thread = Thread.currentThread();
+
+                        thread.getUncaughtExceptionHandler().uncaughtException(thread, exception);
+                    }
+                }
+            }
+        } finally {
+            scheduled.set(false);
+
+            if ((! queue.isEmpty()) && scheduled.compareAndSet(false, true)) {
+                executor.execute(this::deliver);
+            }
+        }
+    }
+
+    @Override
+    protected void removed(K key) { changed(key); }
+
+    @Override
+    protected void updated(K key) { changed(key); }
+
+    @Override
+    public V put(K key, V value) {
+        V old = super.put(key, value);
+
+        changed(key);
+
+        return old;
+    }
+
+    @Override
+    @SuppressWarnings({ "unchecked" })
+    public V remove(Object key) {
+        V old = super.remove(key);
+
+        if (old != null) {
+            changed((K) key);
+        }
+
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        for (K key : map().keySet()) {
+            if (super.remove(key) != null) {
+                changed(key);
+            }
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        V old = super.putIfAbsent(key, value);
+
+        if (old == null) {
+            changed(key);
+        }
+
+        return old;
+    }
+
+    @Override
+    @SuppressWarnings({ "unchecked" })
+    public boolean remove(Object key, Object value) {
+        boolean changed = super.remove(key, value);
+
+        if (changed) {
+            changed((K) key);
+        }
+
+        return changed;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        boolean changed = super.replace(key, oldValue, newValue);
+
+        if (changed) {
+            changed(key);
+        }
+
+        return changed;
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        V old = super.replace(key, value);
+
+        if (old != null) {
+            changed(key);
+        }
+
+        return old;
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K,? super V,? extends V> function) {
+        super.replaceAll(function);
+
+        for (K key : map().keySet()) {
+            changed(key);
+        }
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K,? extends V> function) {
+        AtomicBoolean computed = new AtomicBoolean(false);
+        V value =
+            super.computeIfAbsent(key, k -> {
+                    V v = function.apply(k);
+
+                    computed.set(v != null);
+
+                    return v;
+                });
+
+        if (computed.get()) {
+            changed(key);
+        }
+
+        return value;
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K,? super V,? extends V> function) {
+        AtomicBoolean computed = new AtomicBoolean(false);
+        V value =
+            super.computeIfPresent(key, (k, v) -> {
+                    computed.set(true);
+
+                    return function.apply(k, v);
+                });
+
+        if (computed.get()) {
+            changed(key);
+        }
+
+        return value;
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K,? super V,? extends V> function) {
+        V value = super.compute(key, function);
+
+        changed(key);
+
+        return value;
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V,? super V,? extends V> function) {
+        V merged = super.merge(key, value, function);
+
+        changed(key);
+
+        return merged;
+    }
+
+    /*
+     * The Executor and Listeners are not serialized:  The deserialized
+     * instance delivers on the ForkJoinPool.commonPool() and has no
+     * Listeners.
+     */
+    private Object readResolve() { return new ObservableMapView<>(map()); }
+
+    /**
+     * {@link ObservableMapView} change {@link EventListener}.
+     *
+     * @param   <K>             The key type.
+     * @param   <V>             The value type.
+     */
+    @FunctionalInterface
+    public interface Listener<K,V> extends EventListener {
+
+        /**
+         * Callback method to notify of a batch of changes.
+         *
+         * @param   map             The modified {@link ObservableMapView}.
+         * @param   keys            The (distinct) modified keys in the
+         *                          order first modified.  The current
+         *                          values may be read from {@code map}.
+         */
+        public void mapChanged(ObservableMapView<K,V> map, Set<K> keys);
+    }
+}
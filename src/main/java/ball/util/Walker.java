@@ -18,10 +18,14 @@ package ball.util;
  * limitations under the License.
  * ##########################################################################
  */
-import java.util.Arrays;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
-import java.util.Objects;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators.AbstractSpliterator;
 import java.util.function.Consumer;
@@ -29,75 +33,213 @@ import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
 import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import static java.util.Objects.requireNonNull;
 
 /**
  * {@link Spliterator} implemenation to build {@link Stream}s to walk a tree
  * of {@code <T>} nodes.  See {@link #walk(Object,Function)}.
  *
+ * <p>
+ * The tree is traversed iteratively with an explicit work
+ * {@link Deque} of pending nodes (so deep trees cannot overflow the call
+ * stack) in the {@link Order} specified to
+ * {@link SpliteratorSupplier#order(Order)}.  If
+ * {@link SpliteratorSupplier#cycles(boolean)} is {@code true}, nodes
+ * already visited (by identity) are skipped so DAGs and cyclic graphs may
+ * be walked.  {@link SpliteratorSupplier#maxDepth(int)} bounds the depth
+ * of the traversal (the roots are at depth {@code 0}).
+ * </p>
+ *
+ * <p>
+ * {@link #trySplit()} hands off (up to) half of the pending (unexpanded)
+ * nodes nearest the bottom of the work {@link Deque} (the shallowest
+ * pending sibling subtrees) to a new {@link Walker}, expanding pending
+ * nodes first if necessary.  {@link Walker}s are not
+ * {@link Spliterator#ORDERED}: the traversal order is only guaranteed
+ * for sequential {@link Stream}s.
+ * </p>
+ *
  * @param       <T>             The type of node.
  *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
-@ToString
+@ToString(of = { "order", "maxDepth", "deque" })
 public class Walker<T> extends AbstractSpliterator<T> {
-    private final Stream<Supplier<Spliterator<T>>> stream;
-    private Iterator<Supplier<Spliterator<T>>> iterator = null;
-    private Spliterator<? extends T> spliterator = null;
-
-    private Walker(Collection<? extends T> nodes, Function<? super T,Collection<? extends T>> childrenOf) {
-        super(Long.MAX_VALUE, IMMUTABLE | NONNULL);
+    private final Function<? super T,Collection<? extends T>> childrenOf;
+    private final Order order;
+    private final int maxDepth;
+    private final Set<T> visited;
+    private final Deque<Entry<T>> deque;
+    private int pending;
 
-        stream =
-            nodes.stream()
-            .map(t -> (() -> new Walker<T>(t, childrenOf)));
-    }
-
-    private Walker(T node, Function<? super T,Collection<? extends T>> childrenOf) {
+    private Walker(Function<? super T,Collection<? extends T>> childrenOf,
+                   Order order, int maxDepth, Set<T> visited, Collection<Entry<T>> entries) {
         super(Long.MAX_VALUE, IMMUTABLE | NONNULL);
 
-        stream =
-            Stream.of(node)
-            .filter(Objects::nonNull)
-            .map(childrenOf)
-            .filter(Objects::nonNull)
-            .flatMap(Collection::stream)
-            .map(t -> (() -> new Walker<T>(t, childrenOf)));
-        spliterator = Stream.of(node).spliterator();
+        this.childrenOf = requireNonNull(childrenOf);
+        this.order = requireNonNull(order);
+        this.maxDepth = maxDepth;
+        this.visited = visited;
+        this.deque = new ArrayDeque<>(entries);
+        this.pending = deque.size();
     }
 
     @Override
     public Spliterator<T> trySplit() {
-        if (iterator == null) {
-            iterator = stream.iterator();
+        Walker<T> walker = null;
+
+        if (pending < 2) {
+            Deque<Entry<T>> head = new ArrayDeque<>();
+
+            while (pending < 2 && (! deque.isEmpty())) {
+                Entry<T> entry = deque.pollFirst();
+
+                if (! entry.expanded) {
+                    pending -= 1;
+
+                    if (visit(entry)) {
+                        List<Entry<T>> children = childrenOf(entry);
+
+                        entry.expanded = true;
+
+                        switch (order) {
+                        case PRE_ORDER:
+                        default:
+                            head.addLast(entry);
+                            push(children);
+                            break;
+
+                        case POST_ORDER:
+                            deque.addFirst(entry);
+                            push(children);
+                            break;
+
+                        case BREADTH_FIRST:
+                            head.addLast(entry);
+                            deque.addAll(children);
+                            break;
+                        }
+
+                        pending += children.size();
+                    }
+                } else {
+                    head.addLast(entry);
+                }
+            }
+
+            while (! head.isEmpty()) {
+                deque.addFirst(head.pollLast());
+            }
+        }
+
+        if (pending > 1) {
+            List<Entry<T>> split = new ArrayList<>(pending / 2);
+            Deque<Entry<T>> tail = new ArrayDeque<>();
+
+            for (int n = pending / 2; n > 0;) {
+                Entry<T> entry = deque.pollLast();
+
+                if (! entry.expanded) {
+                    split.add(entry);
+                    n -= 1;
+                } else {
+                    tail.addFirst(entry);
+                }
+            }
+
+            Collections.reverse(split);
+            deque.addAll(tail);
+            pending -= split.size();
+
+            walker = new Walker<>(childrenOf, order, maxDepth, visited, split);
         }
 
-        return iterator.hasNext() ? iterator.next().get() : null;
+        return walker;
     }
 
     @Override
     public boolean tryAdvance(Consumer<? super T> consumer) {
         boolean accepted = false;
+        Entry<T> entry = null;
 
-        while (! accepted) {
-            if (spliterator == null) {
-                spliterator = trySplit();
-            }
+        while ((! accepted) && (entry = deque.pollFirst()) != null) {
+            if (entry.expanded) {
+                accepted = true;
+            } else {
+                pending -= 1;
+
+                if (visit(entry)) {
+                    List<Entry<T>> children = childrenOf(entry);
+
+                    pending += children.size();
+
+                    switch (order) {
+                    case PRE_ORDER:
+                    default:
+                        push(children);
+                        accepted = true;
+                        break;
 
-            if (spliterator != null) {
-                accepted = spliterator.tryAdvance(consumer);
+                    case POST_ORDER:
+                        if (! children.isEmpty()) {
+                            entry.expanded = true;
+                            deque.addFirst(entry);
+                            push(children);
+                        } else {
+                            accepted = true;
+                        }
+                        break;
 
-                if (! accepted) {
-                    spliterator = null;
+                    case BREADTH_FIRST:
+                        deque.addAll(children);
+                        accepted = true;
+                        break;
+                    }
                 }
-            } else {
-                break;
             }
         }
 
+        if (accepted) {
+            consumer.accept(entry.node);
+        }
+
         return accepted;
     }
 
+    private boolean visit(Entry<T> entry) {
+        return visited == null || visited.add(entry.node);
+    }
+
+    private List<Entry<T>> childrenOf(Entry<T> entry) {
+        List<Entry<T>> list = Collections.emptyList();
+
+        if (entry.node != null && entry.depth < maxDepth) {
+            Collection<? extends T> children = childrenOf.apply(entry.node);
+
+            if (children != null && (! children.isEmpty())) {
+                list = new ArrayList<>(children.size());
+
+                for (T child : children) {
+                    list.add(new Entry<>(child, entry.depth + 1));
+                }
+            }
+        }
+
+        return list;
+    }
+
+    private void push(List<Entry<T>> entries) {
+        for (int i = entries.size() - 1; i >= 0; i -= 1) {
+            deque.addFirst(entries.get(i));
+        }
+    }
+
     /**
      * Entry-point to create a {@link Stream} for traversing a tree of type
      * {@code <T>} nodes.  The caller need only supply the root node and a
@@ -111,7 +253,7 @@ public class Walker<T> extends AbstractSpliterator<T> {
      * @return  A {@link Stream}.
      */
     public static <T> Stream<T> walk(T root, Function<? super T,Collection<? extends T>> childrenOf) {
-        return StreamSupport.stream(new Walker<>(root, childrenOf), false);
+        return walk(Collections.singleton(root), childrenOf);
     }
 
     /**
@@ -127,6 +269,74 @@ public class Walker<T> extends AbstractSpliterator<T> {
      * @return  A {@link Stream}.
      */
     public static <T> Stream<T> walk(Collection<? extends T> roots, Function<? super T,Collection<? extends T>> childrenOf) {
-        return StreamSupport.stream(new Walker<>(roots, childrenOf), false);
+        return new SpliteratorSupplier<T>().roots(roots).childrenOf(childrenOf).stream();
+    }
+
+    /**
+     * {@link Walker} traversal order.
+     */
+    public enum Order {
+        /** Depth-first; a node precedes its children. */
+        PRE_ORDER,
+        /** Depth-first; a node follows its children. */
+        POST_ORDER,
+        /** Breadth-first (level order). */
+        BREADTH_FIRST;
+    }
+
+    /**
+     * {@link Walker} {@link Spliterator} {@link Supplier}.
+     */
+    @NoArgsConstructor @ToString
+    public static class SpliteratorSupplier<T> implements Supplier<Spliterator<T>> {
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private Collection<? extends T> roots = null;
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private Function<? super T,Collection<? extends T>> childrenOf = null;
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private Order order = Order.PRE_ORDER;
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private int maxDepth = Integer.MAX_VALUE;
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private boolean cycles = false;
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private boolean parallel = false;
+
+        public SpliteratorSupplier<T> root(T root) {
+            return roots(Collections.singleton(root));
+        }
+
+        public Stream<T> stream() {
+            return StreamSupport.<T>stream(get(), parallel());
+        }
+
+        @Override
+        public Spliterator<T> get() {
+            Set<T> visited = null;
+
+            if (cycles()) {
+                visited = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+            }
+
+            List<Entry<T>> entries = new ArrayList<>(roots().size());
+
+            for (T root : roots()) {
+                entries.add(new Entry<>(root, 0));
+            }
+
+            return new Walker<T>(childrenOf(), order(), maxDepth(), visited, entries);
+        }
+    }
+
+    @ToString
+    private static class Entry<T> {
+        private final T node;
+        private final int depth;
+        private boolean expanded = false;
+
+        public Entry(T node, int depth) {
+            this.node = node;
+            this.depth = depth;
+        }
     }
 }
@@ -69,7 +69,7 @@ public class InstanceOfTask extends TypeTask {
             List<Object> arguments = new ArrayList<>(list.size());
 
             for (TypedAttributeType argument : list) {
-                Factory<?> factory = new Factory<>(getClassForName(argument.getType()));
+                Factory<?> factory = Factory.of(getClassForName(argument.getType()));
 
                 parameters.add(factory.getType());
 
@@ -81,7 +81,7 @@ public class InstanceOfTask extends TypeTask {
             log(String.valueOf(parameters));
             log(String.valueOf(arguments));
 
-            Factory<?> factory = new Factory<>(type);
+            Factory<?> factory = Factory.of(type);
             Member member = factory.getFactoryMethod(parameters.stream().toArray(Class<?>[]::new));
 
             log(String.valueOf(member));
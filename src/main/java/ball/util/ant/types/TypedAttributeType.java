@@ -59,7 +59,7 @@ public class TypedAttributeType extends StringAttributeType {
 
         try {
             Class<?> type = Class.forName(getType(), false, loader);
-            Factory<?> factory = new Factory<>(type);
+            Factory<?> factory = Factory.of(type);
 
             object = factory.getInstance(getValue());
         } catch (BuildException exception) {
@@ -19,16 +19,23 @@ package ball.util.stream;
  * ##########################################################################
  */
 import ball.util.DispatchSpliterator;
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.RandomAccess;
 import java.util.Spliterator;
-import java.util.function.Consumer;
+import java.util.concurrent.atomic.DoubleAccumulator;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import lombok.Getter;
@@ -38,7 +45,6 @@ import lombok.ToString;
 import lombok.experimental.Accessors;
 
 import static java.util.Objects.requireNonNull;
-import static lombok.AccessLevel.PRIVATE;
 
 /**
  * {@link Stream} implementaion that provides all combinations of a
@@ -80,6 +86,46 @@ public interface Combinations<T> extends Stream<List<T>> {
         return supplier.stream();
     }
 
+    /**
+     * Method to get the {@link Stream} of combinations in branch-and-bound
+     * mode.  In addition to the {@code predicate}, any path whose
+     * {@code bound} (the lower bound of the cost of any combination
+     * sharing the prefix) exceeds the current value of {@code best} is
+     * pruned.  The caller updates {@code best} (e.g.,
+     * {@code best.accumulate(cost)}) as solutions are found so the bound
+     * tightens as the enumeration proceeds (including across parallel
+     * splits which share {@code best}).
+     *
+     * @param   size0           The combination size range start
+     *                          (inclusive).
+     * @param   sizeN           The combination size range end (inclusive).
+     * @param   predicate       The optional {@link Predicate} (may be
+     *                          {@code null}) specifying prerequisite
+     *                          requirement(s) for the combinations.  Any
+     *                          path that does not match will be pruned.
+     * @param   bound           The {@link ToDoubleFunction} to calculate
+     *                          the lower bound of a prefix.
+     * @param   best            The shared best (minimum) bound (typically
+     *                          {@code new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY)}).
+     * @param   collection      The {@link Collection} of elements to
+     *                          permute.
+     * @param   <T>             The {@link Collection} element type.
+     *
+     * @return  The {@link Stream} of combinations.
+     */
+    public static <T> Stream<List<T>> of(int size0, int sizeN, Predicate<List<T>> predicate,
+                                         ToDoubleFunction<List<T>> bound, DoubleAccumulator best,
+                                         Collection<T> collection) {
+        SpliteratorSupplier<T> supplier =
+            new SpliteratorSupplier<T>()
+            .collection(collection)
+            .size0(size0).sizeN(sizeN)
+            .predicate(predicate)
+            .bound(requireNonNull(bound)).best(requireNonNull(best));
+
+        return supplier.stream();
+    }
+
     /**
      * Method to get the {@link Stream} of combinations.
      *
@@ -96,8 +142,40 @@ public interface Combinations<T> extends Stream<List<T>> {
 
     /**
      * {@link Combinations} {@link Spliterator} {@link Supplier}.
+     * Combinations are enumerated by walking an {@code int[]} vector of
+     * element indices in lexicographic order; the {@link List} presented
+     * to the consumer is materialized only when a combination is emitted.
+     * If {@link #reuse()} is {@code true}, a single read-only view backed
+     * by the index vector is supplied for every combination (the consumer
+     * must copy the {@link List} if it is to be retained).  The
+     * {@link #predicate()} is applied to each (read-only view of a)
+     * non-empty prefix and any path that does not match is pruned.  In
+     * branch-and-bound mode (both {@link #bound()} and {@link #best()}
+     * specified), any path whose prefix bound exceeds the (concurrently
+     * updated) {@link #best()} value is also pruned.
+     *
+     * <p>
+     * Each combination size is covered by a {@link Spliterator} over a
+     * range of lexicographic ranks which {@link Spliterator#trySplit()}
+     * divides in half (positioning each half by unranking) so parallel
+     * {@link Stream}s are balanced.  Sizes are exact
+     * ({@link Spliterator#SIZED} and {@link Spliterator#SUBSIZED}) unless
+     * a {@link #predicate()} or {@link #bound()} is specified or the count
+     * does not fit in a {@code long}.
+     * </p>
+     *
+     * <p>
+     * The rank of a combination is its (zero-based) position in the
+     * unpruned {@link #stream()} sequence.  {@link #get(long)} and
+     * {@link #rank(List)} convert between ranks and combinations,
+     * {@link #get(long,long)} and {@link #stream(long,long)} start an
+     * enumeration at an arbitrary rank (e.g., to resume an enumeration or
+     * to shard work by rank range) without visiting the preceding
+     * combinations, and {@link #sample(Random)} and
+     * {@link #shuffle(Random)} provide random-access {@link Stream}s.
+     * </p>
      */
-    @NoArgsConstructor(access = PRIVATE) @ToString
+    @NoArgsConstructor @ToString
     public static class SpliteratorSupplier<T> implements Supplier<Spliterator<List<T>>> {
         @Getter @Setter @Accessors(chain = true, fluent = true)
         private int characteristics =
@@ -110,17 +188,178 @@ public interface Combinations<T> extends Stream<List<T>> {
         private int sizeN = -1;
         @Getter @Setter @Accessors(chain = true, fluent = true)
         private Predicate<List<T>> predicate = null;
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private ToDoubleFunction<List<T>> bound = null;
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private DoubleAccumulator best = null;
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private boolean reuse = false;
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private boolean parallel = false;
 
         public SpliteratorSupplier<T> size(int size) {
             return size0(size).sizeN(size);
         }
 
         public Stream<List<T>> stream() {
-            return StreamSupport.<List<T>>stream(get(), false);
+            return StreamSupport.<List<T>>stream(get(), parallel());
+        }
+
+        /**
+         * Method to get the {@link Stream} of combinations whose ranks are
+         * in the range {@code [from, to)}.
+         *
+         * @param   from            The first rank (inclusive).
+         * @param   to              The last rank (exclusive).
+         *
+         * @return  The {@link Stream} of combinations.
+         *
+         * @throws  ArithmeticException
+         *                          If the number of combinations does not
+         *                          fit in a {@code long}.
+         */
+        public Stream<List<T>> stream(long from, long to) {
+            return StreamSupport.<List<T>>stream(get(from, to), parallel());
         }
 
         @Override
         public Spliterator<List<T>> get() {
+            List<? extends T> elements = elements();
+
+            return (size0() == sizeN()) ? forSize(elements, size0()) : new Start(elements);
+        }
+
+        /**
+         * Method to get a {@link Spliterator} over the combinations whose
+         * ranks are in the range {@code [from, to)}.  The
+         * {@link Spliterator} is positioned directly at rank {@code from}
+         * by unranking.
+         *
+         * @param   from            The first rank (inclusive).
+         * @param   to              The last rank (exclusive).
+         *
+         * @return  The {@link Spliterator}.
+         *
+         * @throws  ArithmeticException
+         *                          If the number of combinations does not
+         *                          fit in a {@code long}.
+         */
+        public Spliterator<List<T>> get(long from, long to) {
+            Ranks ranks = new Ranks();
+            List<Spliterator<List<T>>> list = new ArrayList<>();
+
+            for (int i = 0; i < ranks.sizes.length; i += 1) {
+                long origin = Math.max(from - ranks.offsets[i], 0);
+                long fence = Math.min(to - ranks.offsets[i], ranks.blocks[i][0]);
+
+                if (origin < fence) {
+                    list.add(new ForRange(ranks.elements, ranks.blocks[i], new int[] { }, origin, fence));
+                }
+            }
+
+            return (list.size() == 1) ? list.get(0) : new ForRanges(list);
+        }
+
+        /**
+         * Method to get the combination of the specified rank.
+         *
+         * @param   rank            The rank.
+         *
+         * @return  The combination.
+         *
+         * @throws  IndexOutOfBoundsException
+         *                          If {@code rank} is out of range.
+         * @throws  ArithmeticException
+         *                          If the number of combinations does not
+         *                          fit in a {@code long}.
+         */
+        public List<T> get(long rank) { return new Ranks().get(rank); }
+
+        /**
+         * Method to get the rank of the specified combination.
+         *
+         * @param   combination     The combination.
+         *
+         * @return  The rank.
+         *
+         * @throws  IllegalArgumentException
+         *                          If {@code combination} is not a
+         *                          combination of {@link #collection()}
+         *                          of a configured size.
+         * @throws  ArithmeticException
+         *                          If the number of combinations does not
+         *                          fit in a {@code long}.
+         */
+        public long rank(List<?> combination) {
+            return new Ranks().rank(combination);
+        }
+
+        /**
+         * Method to get an infinite {@link Stream} of uniformly sampled
+         * (with replacement) combinations.  Combinations that do not
+         * satisfy the {@link #predicate()} (or exceed the {@link #best()}
+         * bound) are discarded.
+         *
+         * @param   random          The source of randomness.
+         *
+         * @return  The {@link Stream} of combinations.
+         *
+         * @throws  ArithmeticException
+         *                          If the number of combinations does not
+         *                          fit in a {@code long}.
+         */
+        public Stream<List<T>> sample(Random random) {
+            Ranks ranks = new Ranks();
+            Stream<List<T>> stream = Stream.empty();
+
+            if (ranks.count > 0) {
+                stream = random.longs(0, ranks.count).mapToObj(ranks::get).filter(this::accepts);
+            }
+
+            return parallel() ? stream.parallel() : stream;
+        }
+
+        /**
+         * Method to get the {@link Stream} of all combinations in a
+         * pseudo-random order.  The order is that of an affine bijection
+         * of the ranks ({@code (a * rank + b) mod count}) with
+         * coefficients chosen from {@code random} so no state proportional
+         * to the number of combinations is required.
+         *
+         * @param   random          The source of randomness.
+         *
+         * @return  The {@link Stream} of combinations.
+         *
+         * @throws  ArithmeticException
+         *                          If the number of combinations does not
+         *                          fit in a {@code long}.
+         */
+        public Stream<List<T>> shuffle(Random random) {
+            Ranks ranks = new Ranks();
+            long count = ranks.count;
+            long a = 1;
+            long b = 0;
+
+            if (count > 1) {
+                do {
+                    a = random.longs(1, 1, count).sum();
+                } while (gcd(a, count) != 1);
+
+                b = random.longs(1, 0, count).sum();
+            }
+
+            long m = a;
+            long c = b;
+            Stream<List<T>> stream =
+                LongStream.range(0, count)
+                .map(t -> addmod(mulmod(m, t, count), c, count))
+                .mapToObj(ranks::get)
+                .filter(this::accepts);
+
+            return parallel() ? stream.parallel() : stream;
+        }
+
+        private List<? extends T> elements() {
             if (size0() == -1 && sizeN() == -1) {
                 size(collection.size());
             } else if (size0() == -1) {
@@ -129,148 +368,288 @@ public interface Combinations<T> extends Stream<List<T>> {
                 sizeN(size0());
             }
 
-            return new Start();
+            return new ArrayList<>(collection());
         }
 
-        private class Start extends DispatchSpliterator<List<T>> {
-            public Start() {
-                super(binomial(collection().size(), size0(), sizeN()), SpliteratorSupplier.this.characteristics());
+        /*
+         * Tests every non-empty prefix of the combination.
+         */
+        private boolean accepts(List<T> combination) {
+            boolean accepts = true;
+
+            if (predicate() != null || bound() != null) {
+                for (int length = 1, n = combination.size(); accepts && length <= n; length += 1) {
+                    accepts &= test(Collections.unmodifiableList(combination.subList(0, length)));
+                }
             }
 
-            @Override
-            protected Spliterator<Supplier<Spliterator<List<T>>>> spliterators() {
-                List<Supplier<Spliterator<List<T>>>> list = new LinkedList<>();
+            return accepts;
+        }
 
-                IntStream.rangeClosed(Math.min(size0(), sizeN()), Math.max(size0(), sizeN()))
-                    .filter(t -> ! (collection.size() < t))
-                    .forEach(t -> list.add(() -> new ForSize(t)));
+        /*
+         * Tests a (non-empty) prefix against the predicate and, in
+         * branch-and-bound mode, the best bound.
+         */
+        private boolean test(List<T> prefix) {
+            Predicate<List<T>> predicate = predicate();
+            ToDoubleFunction<List<T>> bound = bound();
+            DoubleAccumulator best = best();
+
+            return ((predicate == null || predicate.test(prefix))
+                    && (bound == null || best == null || (! (bound.applyAsDouble(prefix) > best.get()))));
+        }
 
-                if (size0() > sizeN()) {
-                    Collections.reverse(list);
-                }
+        private Spliterator<List<T>> forSize(List<? extends T> elements, int size) {
+            long count = IndexSpliterator.blocks(elements.size(), size)[0];
 
-                return list.spliterator();
-            }
+            return IndexSpliterator.of(elements.size(), size, characteristicsOf(count),
+                                       (b, p, o, f) -> new ForRange(elements, b, p, o, f));
+        }
 
-            @Override
-            public long estimateSize() {
-                return binomial(collection().size(), size0(), sizeN());
-            }
+        /*
+         * The characteristics of a Spliterator covering count elements:
+         * SIZED and SUBSIZED are dropped if a predicate or bound is
+         * specified or the count is saturated.
+         */
+        private int characteristicsOf(long count) {
+            int characteristics = DispatchSpliterator.characteristics(count, characteristics());
 
-            @Override
-            public String toString() {
-                return collection() + "/" + Arrays.asList(size0(), sizeN());
+            if (predicate() != null || bound() != null) {
+                characteristics &= ~(Spliterator.SIZED | Spliterator.SUBSIZED);
             }
+
+            return characteristics;
+        }
+
+        private static long gcd(long a, long b) {
+            return (b == 0) ? a : gcd(b, a % b);
+        }
+
+        private static long addmod(long a, long b, long m) {
+            return (a >= m - b) ? a - (m - b) : a + b;
         }
 
-        private class ForSize extends DispatchSpliterator<List<T>> {
-            private final int size;
+        private static long mulmod(long a, long b, long m) {
+            long product = 0;
 
-            public ForSize(int size) {
-                super(binomial(collection().size(), size), SpliteratorSupplier.this.characteristics());
+            for (a %= m; b > 0; b >>>= 1) {
+                if ((b & 1) != 0) {
+                    product = addmod(product, a, m);
+                }
 
-                this.size = size;
+                a = addmod(a, a, m);
             }
 
-            @Override
-            protected Spliterator<Supplier<Spliterator<List<T>>>> spliterators() {
-                Supplier<Spliterator<List<T>>> supplier =
-                    () -> new ForPrefix(size, new LinkedList<>(), new LinkedList<>(collection()));
+            return product;
+        }
 
-                return Stream.of(supplier).spliterator();
+        /*
+         * Ranking of the (unpruned) combinations of every configured size:
+         * the sizes in stream order with their prefix block counts and
+         * rank offsets.
+         */
+        private class Ranks {
+            private final List<? extends T> elements;
+            private final int[] sizes;
+            private final long[][] blocks;
+            private final long[] offsets;
+            private final long count;
+
+            public Ranks() {
+                elements = elements();
+                sizes =
+                    IntStream.rangeClosed(Math.min(size0(), sizeN()), Math.max(size0(), sizeN()))
+                    .map(t -> (size0() > sizeN()) ? (size0() + sizeN() - t) : t)
+                    .filter(t -> ! (elements.size() < t))
+                    .toArray();
+                blocks = new long[sizes.length][];
+                offsets = new long[sizes.length];
+
+                long count = 0;
+
+                for (int i = 0; i < sizes.length; i += 1) {
+                    blocks[i] = IndexSpliterator.blocks(elements.size(), sizes[i]);
+                    offsets[i] = count;
+
+                    if (blocks[i][0] == Long.MAX_VALUE) {
+                        throw new ArithmeticException("long overflow");
+                    }
+
+                    count = Math.addExact(count, blocks[i][0]);
+                }
+
+                this.count = count;
             }
 
-            @Override
-            public long estimateSize() {
-                return binomial(collection().size(), size);
+            public List<T> get(long rank) {
+                for (int i = 0; i < sizes.length; i += 1) {
+                    if (offsets[i] <= rank && rank - offsets[i] < blocks[i][0]) {
+                        int[] index = new int[sizes[i]];
+                        List<T> list = new ArrayList<>(index.length);
+
+                        IndexSpliterator.unrank(rank - offsets[i], blocks[i], 0, index, new boolean[elements.size()]);
+
+                        for (int j : index) {
+                            list.add(elements.get(j));
+                        }
+
+                        return list;
+                    }
+                }
+
+                throw new IndexOutOfBoundsException(String.valueOf(rank));
             }
 
-            @Override
-            public String toString() {
-                return collection() + "/" + Arrays.asList(size);
+            public long rank(List<?> combination) {
+                for (int i = 0; i < sizes.length; i += 1) {
+                    if (sizes[i] == combination.size()) {
+                        boolean[] used = new boolean[elements.size()];
+                        long rank = offsets[i];
+
+                        for (int p = 0; p < sizes[i]; p += 1) {
+                            Object object = combination.get(p);
+                            long ordinal = 0;
+                            int j = 0;
+
+                            while (j < used.length
+                                   && (used[j] || (! Objects.equals(object, elements.get(j))))) {
+                                if (! used[j]) {
+                                    ordinal += 1;
+                                }
+
+                                j += 1;
+                            }
+
+                            if (! (j < used.length)) {
+                                throw new IllegalArgumentException(String.valueOf(combination));
+                            }
+
+                            used[j] = true;
+                            rank += ordinal * blocks[i][p + 1];
+                        }
+
+                        return rank;
+                    }
+                }
+
+                throw new IllegalArgumentException(String.valueOf(combination));
             }
         }
 
-        private class ForPrefix extends DispatchSpliterator<List<T>> {
-            private final int size;
-            private final List<T> prefix;
-            private final List<T> remaining;
+        private class Start extends DispatchSpliterator<List<T>> {
+            private final List<? extends T> elements;
+
+            public Start(List<? extends T> elements) {
+                this(elements, binomial(elements.size(), size0(), sizeN()));
+            }
 
-            public ForPrefix(int size, List<T> prefix, List<T> remaining) {
-                super(binomial(remaining.size(), size), SpliteratorSupplier.this.characteristics());
+            private Start(List<? extends T> elements, long estimate) {
+                super(estimate, SpliteratorSupplier.this.characteristicsOf(estimate));
 
-                this.size = size;
-                this.prefix = requireNonNull(prefix);
-                this.remaining = requireNonNull(remaining);
+                this.elements = requireNonNull(elements);
             }
 
             @Override
             protected Spliterator<Supplier<Spliterator<List<T>>>> spliterators() {
                 List<Supplier<Spliterator<List<T>>>> list = new LinkedList<>();
 
-                if (prefix.size() < size) {
-                    for (int i = 0, n = remaining.size(); i < n; i += 1) {
-                        List<T> prefix = new LinkedList<>(this.prefix);
-                        List<T> remaining = new LinkedList<>(this.remaining);
-
-                        prefix.add(remaining.remove(i));
+                IntStream.rangeClosed(Math.min(size0(), sizeN()), Math.max(size0(), sizeN()))
+                    .filter(t -> ! (elements.size() < t))
+                    .forEach(t -> list.add(() -> forSize(elements, t)));
 
-                        list.add(() -> new ForPrefix(size, prefix, remaining));
-                    }
-                } else if (prefix.size() == size) {
-                    list.add(() -> new ForCombination(prefix));
-                } else {
-                    throw new IllegalStateException();
+                if (size0() > sizeN()) {
+                    Collections.reverse(list);
                 }
 
                 return list.spliterator();
             }
 
             @Override
-            public boolean tryAdvance(Consumer<? super List<T>> consumer) {
-                Predicate<List<T>> predicate = SpliteratorSupplier.this.predicate();
+            public String toString() {
+                return elements + "/" + Arrays.asList(size0(), sizeN());
+            }
+        }
+
+        /*
+         * Dispatches to a sequence of ForRange Spliterators.
+         */
+        private class ForRanges extends DispatchSpliterator<List<T>> {
+            private final List<Spliterator<List<T>>> list;
 
-                return ((prefix.isEmpty() || (predicate == null || predicate.test(prefix)))
-                        && super.tryAdvance(consumer));
+            public ForRanges(List<Spliterator<List<T>>> list) {
+                super(list.stream().mapToLong(Spliterator::estimateSize).sum(),
+                      SpliteratorSupplier.this.characteristicsOf(0));
+
+                this.list = requireNonNull(list);
             }
 
             @Override
-            public long estimateSize() {
-                return binomial(remaining.size(), size);
+            protected Spliterator<Supplier<Spliterator<List<T>>>> spliterators() {
+                return list.stream().<Supplier<Spliterator<List<T>>>>map(t -> (() -> t)).spliterator();
             }
 
             @Override
-            public String toString() {
-                return prefix + ":" + remaining + "/" + Arrays.asList(size);
-            }
+            public String toString() { return String.valueOf(list); }
         }
 
-        private class ForCombination extends DispatchSpliterator<List<T>> {
-            private final List<T> combination;
+        /*
+         * IndexSpliterator that materializes the combinations of elements.
+         */
+        private class ForRange extends IndexSpliterator<List<T>> {
+            private final List<? extends T> elements;
+            private final View view = new View();
 
-            public ForCombination(List<T> combination) {
-                super(1, SpliteratorSupplier.this.characteristics());
+            public ForRange(List<? extends T> elements, long[] blocks, int[] prefix, long origin, long fence) {
+                super(elements.size(), blocks, prefix, origin, fence,
+                      SpliteratorSupplier.this.characteristicsOf(blocks[prefix.length]));
 
-                this.combination = requireNonNull(combination);
+                this.elements = requireNonNull(elements);
             }
 
             @Override
-            protected Spliterator<Supplier<Spliterator<List<T>>>> spliterators() {
-                Supplier<Spliterator<List<T>>> supplier = () -> Stream.of(combination).spliterator();
+            protected boolean test(int[] index, int length) {
+                view.index = index;
+                view.size = length;
 
-                return Stream.of(supplier).spliterator();
+                return SpliteratorSupplier.this.test(view);
             }
 
             @Override
-            public boolean tryAdvance(Consumer<? super List<T>> consumer) {
-                Predicate<List<T>> predicate = SpliteratorSupplier.this.predicate();
+            protected List<T> get(int[] index) {
+                view.index = index;
+                view.size = index.length;
 
-                return ((combination.isEmpty() || (predicate == null || predicate.test(combination)))
-                        && super.tryAdvance(consumer));
+                return reuse() ? view : new ArrayList<>(view);
             }
 
             @Override
-            public String toString() { return String.valueOf(combination); }
+            protected IndexSpliterator<List<T>> spliterator(int[] prefix, long origin, long fence) {
+                return new ForRange(elements, blocks(), prefix, origin, fence);
+            }
+
+            @Override
+            public String toString() { return elements + "/" + super.toString(); }
+
+            /*
+             * Read-only List view of the first size elements of the
+             * index vector.
+             */
+            private class View extends AbstractList<T> implements RandomAccess {
+                private int[] index = null;
+                private int size = 0;
+
+                @Override
+                public T get(int i) {
+                    if (i < 0 || i >= size) {
+                        throw new IndexOutOfBoundsException(String.valueOf(i));
+                    }
+
+                    return elements.get(index[i]);
+                }
+
+                @Override
+                public int size() { return size; }
+            }
         }
     }
 }
@@ -0,0 +1,198 @@
+package ball.util.stream;
+/*-
+ * ##########################################################################
+ * Utilities
+ * %%
+ * Copyright (C) 2008 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import ball.util.DispatchSpliterator;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+/**
+ * {@link Stream} implementaion that provides all combinations of the
+ * index range {@code [0, n)} as {@code int[]} arrays.  The combinations
+ * are streamed in the same order (and with the same prefix-pruning
+ * semantics) as {@link Combinations} of a {@link java.util.List} of
+ * {@code n} elements but without boxing or {@link java.util.List}
+ * allocation.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+public interface IndexCombinations extends Stream<int[]> {
+
+    /**
+     * Method to get the {@link Stream} of combinations.
+     *
+     * @param   n               The size of the index range.
+     * @param   size            The combination size.
+     * @param   predicate       The optional {@link PrefixPredicate} (may
+     *                          be {@code null}) specifying prerequisite
+     *                          requirement(s) for the combinations.  Any
+     *                          path that does not match will be pruned.
+     *
+     * @return  The {@link Stream} of combinations.
+     */
+    public static Stream<int[]> of(int n, int size, PrefixPredicate predicate) {
+        SpliteratorSupplier supplier =
+            new SpliteratorSupplier()
+            .n(n)
+            .size(size)
+            .predicate(predicate);
+
+        return supplier.stream();
+    }
+
+    /**
+     * Method to get the {@link Stream} of combinations.
+     *
+     * @param   n               The size of the index range.
+     * @param   size            The combination size.
+     *
+     * @return  The {@link Stream} of combinations.
+     */
+    public static Stream<int[]> of(int n, int size) {
+        return of(n, size, null);
+    }
+
+    /**
+     * {@link IndexCombinations} prefix {@link java.util.function.Predicate}.
+     */
+    @FunctionalInterface
+    public interface PrefixPredicate {
+
+        /**
+         * Method to test a (non-empty) prefix.  Implementations must not
+         * modify or retain {@code index}.
+         *
+         * @param   index           The index vector.
+         * @param   length          The length of the prefix.
+         *
+         * @return  {@code true} if the prefix is accepted; {@code false}
+         *          if the path should be pruned.
+         */
+        public boolean test(int[] index, int length);
+    }
+
+    /**
+     * {@link IndexCombinations} {@link Spliterator} {@link Supplier}.  By
+     * default, each combination is supplied as a new {@code int[]}.  If a
+     * {@link #buffer()} is specified, each combination is copied into the
+     * buffer and the buffer is supplied (the {@link Spliterator} will not
+     * split so the buffer is only ever written by one thread).
+     */
+    @NoArgsConstructor @ToString
+    public static class SpliteratorSupplier implements Supplier<Spliterator<int[]>> {
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private int characteristics =
+            Spliterator.IMMUTABLE | Spliterator.NONNULL | Spliterator.SIZED | Spliterator.SUBSIZED;
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private int n = 0;
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private int size = -1;
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private PrefixPredicate predicate = null;
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private int[] buffer = null;
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private boolean parallel = false;
+
+        public Stream<int[]> stream() {
+            return StreamSupport.<int[]>stream(get(), parallel() && buffer() == null);
+        }
+
+        @Override
+        public Spliterator<int[]> get() {
+            if (size() == -1) {
+                size(n());
+            }
+
+            if (buffer() != null && buffer().length < size()) {
+                throw new IllegalArgumentException("buffer.length < " + size());
+            }
+
+            Spliterator<int[]> spliterator = null;
+
+            if (size() <= n()) {
+                long count = IndexSpliterator.blocks(n(), size())[0];
+
+                spliterator =
+                    IndexSpliterator.of(n(), size(), characteristicsOf(count),
+                                        (b, p, o, f) -> new ForRange(b, p, o, f));
+            } else {
+                spliterator = Stream.<int[]>empty().spliterator();
+            }
+
+            return spliterator;
+        }
+
+        private int characteristicsOf(long count) {
+            int characteristics = DispatchSpliterator.characteristics(count, characteristics());
+
+            if (predicate() != null) {
+                characteristics &= ~(Spliterator.SIZED | Spliterator.SUBSIZED);
+            }
+
+            return characteristics;
+        }
+
+        private class ForRange extends IndexSpliterator<int[]> {
+            public ForRange(long[] blocks, int[] prefix, long origin, long fence) {
+                super(n(), blocks, prefix, origin, fence,
+                      SpliteratorSupplier.this.characteristicsOf(blocks[prefix.length]));
+            }
+
+            @Override
+            public Spliterator<int[]> trySplit() {
+                return (buffer() == null) ? super.trySplit() : null;
+            }
+
+            @Override
+            protected boolean test(int[] index, int length) {
+                PrefixPredicate predicate = predicate();
+
+                return predicate == null || predicate.test(index, length);
+            }
+
+            @Override
+            protected int[] get(int[] index) {
+                int[] array = null;
+
+                if (buffer() != null) {
+                    array = buffer();
+                    System.arraycopy(index, 0, array, 0, index.length);
+                } else {
+                    array = Arrays.copyOf(index, index.length);
+                }
+
+                return array;
+            }
+
+            @Override
+            protected IndexSpliterator<int[]> spliterator(int[] prefix, long origin, long fence) {
+                return new ForRange(blocks(), prefix, origin, fence);
+            }
+        }
+    }
+}
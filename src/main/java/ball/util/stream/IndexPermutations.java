@@ -0,0 +1,57 @@
+package ball.util.stream;
+/*-
+ * ##########################################################################
+ * Utilities
+ * %%
+ * Copyright (C) 2008 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.util.stream.Stream;
+
+/**
+ * {@link Stream} implementaion that provides all permutations of the
+ * index range {@code [0, n)} as {@code int[]} arrays.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+public interface IndexPermutations extends IndexCombinations {
+
+    /**
+     * Method to get the {@link Stream} of permutations.
+     *
+     * @param   n               The size of the index range.
+     *
+     * @return  The {@link Stream} of permutations.
+     */
+    public static Stream<int[]> of(int n) {
+        return of(n, null);
+    }
+
+    /**
+     * Method to get the {@link Stream} of permutations.
+     *
+     * @param   n               The size of the index range.
+     * @param   predicate       The optional {@link IndexCombinations.PrefixPredicate}
+     *                          (may be {@code null}) specifying
+     *                          prerequisite requirement(s) for the
+     *                          combinations.  Any path that does not match
+     *                          will be pruned.
+     *
+     * @return  The {@link Stream} of permutations.
+     */
+    public static Stream<int[]> of(int n, PrefixPredicate predicate) {
+        return IndexCombinations.of(n, n, predicate);
+    }
+}
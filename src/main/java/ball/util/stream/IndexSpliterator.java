@@ -0,0 +1,431 @@
+package ball.util.stream;
+/*-
+ * ##########################################################################
+ * Utilities
+ * %%
+ * Copyright (C) 2008 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import ball.util.DispatchSpliterator;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link Spliterator} abstract base class that walks the
+ * {@code size}-combinations (ordered selections) of the indices
+ * {@code [0, n)} as an {@code int[]} index vector in lexicographic order.
+ * The {@link Spliterator} covers the combinations (sharing a fixed prefix)
+ * whose lexicographic ranks (relative to the prefix) are in a range
+ * {@code [origin, fence)}; {@link #trySplit()} divides the remaining range
+ * in half and positions each half by unranking.  Subclasses supply the
+ * prefix test ({@link #test(int[],int)}), the element materialization
+ * ({@link #get(int[])}), and the split factory
+ * ({@link #spliterator(int[],long,long)}).
+ *
+ * @param       <E>             The element type.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+public abstract class IndexSpliterator<E> implements Spliterator<E> {
+    private final long[] blocks;
+    private final int base;
+    private final int[] index;
+    private final boolean[] used;
+    private final int characteristics;
+    private long rank = 0;
+    private long fence = 0;
+    private int valid = 0;
+    private boolean emitted = false;
+
+    /**
+     * Sole constructor.
+     *
+     * @param   n               The number of indices.
+     * @param   blocks          The prefix block counts (see
+     *                          {@link #blocks(int,int)}).
+     * @param   prefix          The fixed prefix.
+     * @param   origin          The first rank (inclusive).
+     * @param   fence           The last rank (exclusive).
+     * @param   characteristics The {@link Spliterator} characteristics.
+     */
+    protected IndexSpliterator(int n, long[] blocks, int[] prefix, long origin, long fence, int characteristics) {
+        this.blocks = requireNonNull(blocks);
+        this.base = prefix.length;
+        this.index = Arrays.copyOf(prefix, blocks.length - 1);
+        this.used = new boolean[n];
+        this.characteristics = characteristics;
+        this.fence = fence;
+
+        position(origin);
+    }
+
+    /**
+     * Method to test a (non-empty) prefix of the index vector.
+     *
+     * @param   index           The index vector.
+     * @param   length          The length of the prefix.
+     *
+     * @return  {@code true} if the prefix is accepted; {@code false} if
+     *          the path should be pruned.
+     */
+    protected abstract boolean test(int[] index, int length);
+
+    /**
+     * Method to materialize the element supplied to the consumer for a
+     * (complete) index vector.
+     *
+     * @param   index           The index vector.
+     *
+     * @return  The element.
+     */
+    protected abstract E get(int[] index);
+
+    /**
+     * Method to create a {@link Spliterator} of the same configuration
+     * over a different range.
+     *
+     * @param   prefix          The fixed prefix.
+     * @param   origin          The first rank (inclusive).
+     * @param   fence           The last rank (exclusive).
+     *
+     * @return  The new {@link IndexSpliterator}.
+     */
+    protected abstract IndexSpliterator<E> spliterator(int[] prefix, long origin, long fence);
+
+    /**
+     * @return  The prefix block counts.
+     */
+    protected long[] blocks() { return blocks; }
+
+    @Override
+    public int characteristics() { return characteristics; }
+
+    @Override
+    public long estimateSize() {
+        return Math.max(0, fence - rank - (emitted ? 1 : 0));
+    }
+
+    @Override
+    public Spliterator<E> trySplit() {
+        Spliterator<E> spliterator = null;
+        long origin = emitted ? rank + 1 : rank;
+        long middle = origin + (fence - origin) / 2;
+
+        if (origin < middle && middle < fence) {
+            spliterator = spliterator(Arrays.copyOf(index, base), origin, middle);
+
+            position(middle);
+        }
+
+        return spliterator;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super E> consumer) {
+        if (emitted) {
+            emitted = false;
+            skip(index.length - 1);
+        }
+
+        while (rank < fence && valid < index.length) {
+            if (test(index, valid + 1)) {
+                valid += 1;
+            } else {
+                skip(valid);
+            }
+        }
+
+        emitted = (rank < fence);
+
+        if (emitted) {
+            consumer.accept(get(index));
+        }
+
+        return emitted;
+    }
+
+    /**
+     * Method to position {@link.this} {@link Spliterator} at the
+     * specified rank.  Ranks before the current position are ignored.
+     *
+     * @param   rank            The rank.
+     */
+    public void skipTo(long rank) {
+        if (rank > (emitted ? this.rank + 1 : this.rank)) {
+            position(Math.min(rank, fence));
+        }
+    }
+
+    /*
+     * Positions the index vector at the combination of the specified
+     * rank.
+     */
+    private void position(long rank) {
+        this.rank = rank;
+        this.valid = 0;
+        this.emitted = false;
+
+        if (rank < fence) {
+            Arrays.fill(used, false);
+
+            for (int p = 0; p < base; p += 1) {
+                used[index[p]] = true;
+            }
+
+            unrank(rank, blocks, base, index, used);
+        }
+    }
+
+    /*
+     * Skips the remaining combinations that share the prefix ending at
+     * position d.
+     */
+    private void skip(int d) {
+        if (d >= base) {
+            long block = blocks[d + 1];
+
+            rank = (block == 1) ? (rank + 1) : ((rank / block + 1) * block);
+
+            if (rank < fence) {
+                valid = increment(d);
+            }
+        } else {
+            rank = fence;
+        }
+    }
+
+    /*
+     * Advances position d to the next unused index (carrying to the left
+     * if position d is exhausted) and resets the positions to the right
+     * to the smallest unused indices in order.  Returns the leftmost
+     * changed position.
+     */
+    private int increment(int d) {
+        for (int p = index.length - 1; p > d; p -= 1) {
+            used[index[p]] = false;
+        }
+
+        while (d >= base) {
+            used[index[d]] = false;
+
+            int i = index[d] + 1;
+
+            while (i < used.length && used[i]) {
+                i += 1;
+            }
+
+            if (i < used.length) {
+                index[d] = i;
+                used[i] = true;
+                break;
+            } else {
+                d -= 1;
+            }
+        }
+
+        if (d < base) {
+            throw new IllegalStateException();
+        }
+
+        for (int p = d + 1, i = 0; p < index.length; p += 1) {
+            while (used[i]) {
+                i += 1;
+            }
+
+            index[p] = i;
+            used[i] = true;
+        }
+
+        return d;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(Arrays.copyOf(index, base)) + "/" + Arrays.asList(index.length) + "/" + Arrays.asList(rank, fence);
+    }
+
+    /**
+     * Method to get a {@link Spliterator} over all {@code size}-combinations
+     * of {@code n} indices.  If the number of combinations cannot be
+     * ranked with a {@code long}, the returned {@link Spliterator}
+     * dispatches on each possible extension of the prefix until the
+     * number of combinations sharing the prefix can be ranked.
+     *
+     * @param   n               The number of indices.
+     * @param   size            The combination size.
+     * @param   characteristics The characteristics of the dispatching
+     *                          {@link Spliterator}s.
+     * @param   factory         The {@link Factory} to create
+     *                          {@link IndexSpliterator}s.
+     * @param   <E>             The element type.
+     *
+     * @return  The {@link Spliterator}.
+     */
+    public static <E> Spliterator<E> of(int n, int size, int characteristics, Factory<E> factory) {
+        Spliterator<E> spliterator = null;
+        long[] blocks = blocks(n, size);
+
+        if (blocks[0] < Long.MAX_VALUE) {
+            spliterator = factory.get(blocks, new int[] { }, 0, blocks[0]);
+        } else {
+            spliterator = new ForPrefix<>(n, blocks, new int[] { }, characteristics, factory);
+        }
+
+        return spliterator;
+    }
+
+    /**
+     * Method to calculate the prefix block counts:  {@code blocks[m]} is
+     * the number of {@code size}-combinations of {@code n} indices that
+     * share a common prefix of length {@code m} (the number of
+     * {@code (size - m)}-combinations of the {@code n - m} remaining
+     * indices) saturated at {@link Long#MAX_VALUE}.
+     *
+     * @param   n               The number of indices.
+     * @param   size            The combination size.
+     *
+     * @return  The block counts ({@code size + 1} elements).
+     */
+    public static long[] blocks(int n, int size) {
+        long[] blocks = new long[size + 1];
+
+        if (size <= n) {
+            blocks[size] = 1;
+
+            for (int m = size - 1; m >= 0; m -= 1) {
+                try {
+                    blocks[m] = Math.multiplyExact(blocks[m + 1], n - m);
+                } catch (ArithmeticException exception) {
+                    blocks[m] = Long.MAX_VALUE;
+                }
+            }
+        }
+
+        return blocks;
+    }
+
+    /**
+     * Method to position an index vector (positions
+     * {@code [base, index.length)}) at the combination of the specified
+     * rank (relative to the prefix in positions {@code [0, base)} which
+     * must already be marked used).
+     *
+     * @param   rank            The rank.
+     * @param   blocks          The prefix block counts.
+     * @param   base            The length of the fixed prefix.
+     * @param   index           The index vector.
+     * @param   used            The indices used by the index vector.
+     */
+    public static void unrank(long rank, long[] blocks, int base, int[] index, boolean[] used) {
+        for (int p = base; p < index.length; p += 1) {
+            long ordinal = rank / blocks[p + 1];
+            int i = 0;
+
+            rank %= blocks[p + 1];
+
+            while (used[i] || ordinal > 0) {
+                if (! used[i]) {
+                    ordinal -= 1;
+                }
+
+                i += 1;
+            }
+
+            index[p] = i;
+            used[i] = true;
+        }
+    }
+
+    /**
+     * {@link IndexSpliterator} factory.
+     *
+     * @param   <E>             The element type.
+     */
+    @FunctionalInterface
+    public interface Factory<E> {
+
+        /**
+         * Method to create an {@link IndexSpliterator}.
+         *
+         * @param   blocks          The prefix block counts.
+         * @param   prefix          The fixed prefix.
+         * @param   origin          The first rank (inclusive).
+         * @param   fence           The last rank (exclusive).
+         *
+         * @return  The new {@link IndexSpliterator}.
+         */
+        public IndexSpliterator<E> get(long[] blocks, int[] prefix, long origin, long fence);
+    }
+
+    /*
+     * Dispatches to a Spliterator for each possible extension of the
+     * prefix.  Only used where the number of combinations sharing the
+     * prefix cannot be ranked with a long.
+     */
+    private static class ForPrefix<E> extends DispatchSpliterator<E> {
+        private final int n;
+        private final long[] blocks;
+        private final int[] prefix;
+        private final int characteristics;
+        private final Factory<E> factory;
+
+        public ForPrefix(int n, long[] blocks, int[] prefix, int characteristics, Factory<E> factory) {
+            super(blocks[prefix.length], characteristics);
+
+            this.n = n;
+            this.blocks = requireNonNull(blocks);
+            this.prefix = requireNonNull(prefix);
+            this.characteristics = characteristics;
+            this.factory = requireNonNull(factory);
+        }
+
+        @Override
+        protected Spliterator<Supplier<Spliterator<E>>> spliterators() {
+            List<Supplier<Spliterator<E>>> list = new LinkedList<>();
+            boolean[] used = new boolean[n];
+
+            for (int i : prefix) {
+                used[i] = true;
+            }
+
+            for (int i = 0; i < used.length; i += 1) {
+                if (! used[i]) {
+                    int[] prefix = Arrays.copyOf(this.prefix, this.prefix.length + 1);
+
+                    prefix[prefix.length - 1] = i;
+
+                    if (blocks[prefix.length] < Long.MAX_VALUE) {
+                        list.add(() -> factory.get(blocks, prefix, 0, blocks[prefix.length]));
+                    } else {
+                        list.add(() -> new ForPrefix<>(n, blocks, prefix, characteristics, factory));
+                    }
+                }
+            }
+
+            return list.spliterator();
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(prefix) + "/" + Arrays.asList(blocks.length - 1);
+        }
+    }
+}
@@ -0,0 +1,455 @@
+package ball.util.stream;
+/*-
+ * ##########################################################################
+ * Utilities
+ * %%
+ * Copyright (C) 2008 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import ball.util.DispatchSpliterator;
+import java.math.BigInteger;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link Stream} implementaion that provides all combinations of a
+ * multiset (a {@link Collection} that may contain equal elements).  Unlike
+ * {@link Combinations}, each distinct combination is streamed exactly
+ * once.
+ *
+ * @param       <T>             The {@link List} element type.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+public interface MultisetCombinations<T> extends Stream<List<T>> {
+
+    /**
+     * Method to get the {@link Stream} of combinations.
+     *
+     * @param   size            The combination size.
+     * @param   predicate       The optional {@link Predicate} (may be
+     *                          {@code null}) specifying prerequisite
+     *                          requirement(s) for the combinations.  Any
+     *                          path that does not match will be pruned.
+     * @param   collection      The {@link Collection} of elements to
+     *                          permute.
+     * @param   <T>             The {@link Collection} element type.
+     *
+     * @return  The {@link Stream} of combinations.
+     */
+    public static <T> Stream<List<T>> of(int size, Predicate<List<T>> predicate, Collection<T> collection) {
+        SpliteratorSupplier<T> supplier =
+            new SpliteratorSupplier<T>()
+            .collection(collection)
+            .size(size)
+            .predicate(predicate);
+
+        return supplier.stream();
+    }
+
+    /**
+     * Method to get the {@link Stream} of combinations.
+     *
+     * @param   size            The combination size.
+     * @param   collection      The {@link Collection} of elements to
+     *                          permute.
+     * @param   <T>             The {@link Collection} element type.
+     *
+     * @return  The {@link Stream} of combinations.
+     */
+    public static <T> Stream<List<T>> of(int size, Collection<T> collection) {
+        return of(size, null, collection);
+    }
+
+    /**
+     * Method to count the distinct combinations of {@code k}-size of a
+     * multiset with the specified element multiplicities.
+     *
+     * @param   multiplicities  The multiplicity of each distinct element.
+     * @param   k               The combination size.
+     *
+     * @return  The (exact) number of distinct combinations.
+     */
+    public static BigInteger count(int[] multiplicities, int k) {
+        if (k < 0) {
+            return BigInteger.ZERO;
+        }
+
+        BigInteger[] counts = new BigInteger[k + 1];
+
+        Arrays.fill(counts, BigInteger.ZERO);
+        counts[0] = BigInteger.ONE;
+
+        for (int multiplicity : multiplicities) {
+            for (int j = k; j > 0; j -= 1) {
+                BigInteger count = counts[j];
+
+                for (int t = 1, n = Math.min(multiplicity, j); t <= n; t += 1) {
+                    count = count.add(counts[j - t].multiply(DispatchSpliterator.binomialCoefficient(j, t)));
+                }
+
+                counts[j] = count;
+            }
+        }
+
+        return counts[k];
+    }
+
+    /**
+     * {@link MultisetCombinations} {@link Spliterator} {@link Supplier}.
+     * Equal elements (as determined by {@link Object#equals(Object)}) are
+     * grouped and the distinct combinations are enumerated by walking an
+     * {@code int[]} vector of distinct element indices in (next
+     * permutation) lexicographic order where the distinct elements are
+     * ordered by first occurrence in {@link #collection()}.  The
+     * {@link #predicate()} and {@link #reuse()} options have the same
+     * semantics as those of {@link Combinations.SpliteratorSupplier}.
+     * The {@link Spliterator}s (including those split off) are
+     * {@link Spliterator#SIZED} (with the exact count) unless a
+     * {@link #predicate()} is specified or the count does not fit in a
+     * {@code long}.
+     */
+    @NoArgsConstructor @ToString
+    public static class SpliteratorSupplier<T> implements Supplier<Spliterator<List<T>>> {
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private int characteristics =
+            Spliterator.IMMUTABLE | Spliterator.NONNULL | Spliterator.SIZED;
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private Collection<? extends T> collection = null;
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private int size = -1;
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private Predicate<List<T>> predicate = null;
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private boolean reuse = false;
+        @Getter @Setter @Accessors(chain = true, fluent = true)
+        private boolean parallel = false;
+
+        public Stream<List<T>> stream() {
+            return StreamSupport.<List<T>>stream(get(), parallel());
+        }
+
+        @Override
+        public Spliterator<List<T>> get() {
+            if (size() == -1) {
+                size(collection().size());
+            }
+
+            Map<T,Integer> map = new LinkedHashMap<>();
+
+            for (T element : collection()) {
+                map.merge(element, 1, Integer::sum);
+            }
+
+            List<T> elements = new ArrayList<>(map.keySet());
+            int[] multiplicities = map.values().stream().mapToInt(Integer::intValue).toArray();
+            Spliterator<List<T>> spliterator = null;
+
+            if (size() <= collection().size()) {
+                long estimate = DispatchSpliterator.saturated(count(multiplicities, size()));
+
+                spliterator = new ForMultiset(elements, multiplicities, new int[] { }, 0, elements.size(), estimate, true);
+            } else {
+                spliterator = Stream.<List<T>>empty().spliterator();
+            }
+
+            return spliterator;
+        }
+
+        /*
+         * Walks the distinct combinations sharing a fixed prefix whose
+         * value at position base is in the range [origin, limit).
+         */
+        private class ForMultiset implements Spliterator<List<T>> {
+            private final List<T> elements;
+            private final int[] multiplicities;
+            private final int[] index;
+            private final int[] remaining;
+            private final View view;
+            private int base;
+            private int limit;
+            private long estimate;
+            private boolean sized;
+            private int valid = 0;
+            private boolean emitted = false;
+            private boolean exhausted = false;
+
+            public ForMultiset(List<T> elements, int[] multiplicities, int[] prefix, int origin, int limit, long estimate, boolean sized) {
+                this.elements = requireNonNull(elements);
+                this.multiplicities = requireNonNull(multiplicities);
+                this.index = Arrays.copyOf(prefix, size());
+                this.remaining = multiplicities.clone();
+                this.view = new View();
+                this.base = prefix.length;
+                this.limit = limit;
+                this.estimate = estimate;
+                this.sized = (sized && predicate() == null && estimate < Long.MAX_VALUE);
+
+                for (int p = 0; p < base; p += 1) {
+                    remaining[index[p]] -= 1;
+                }
+
+                exhausted = (! first(origin));
+            }
+
+            @Override
+            public int characteristics() {
+                int characteristics = SpliteratorSupplier.this.characteristics();
+
+                if (! sized) {
+                    characteristics &= ~(Spliterator.SIZED | Spliterator.SUBSIZED);
+                }
+
+                return characteristics;
+            }
+
+            @Override
+            public long estimateSize() { return estimate; }
+
+            @Override
+            public Spliterator<List<T>> trySplit() {
+                Spliterator<List<T>> spliterator = null;
+
+                while (spliterator == null && (! exhausted) && base < size()) {
+                    List<Integer> siblings = new ArrayList<>();
+
+                    for (int v = index[base] + 1; v < limit; v += 1) {
+                        if (remaining[v] + count(v, base) > 0) {
+                            siblings.add(v);
+                        }
+                    }
+
+                    if (! siblings.isEmpty()) {
+                        int middle = siblings.get(siblings.size() / 2);
+                        long estimate = sized ? total(middle, limit) : Math.max(1, this.estimate / 2);
+
+                        spliterator =
+                            new ForMultiset(elements, multiplicities, Arrays.copyOf(index, base), middle, limit, estimate, sized);
+                        this.estimate = sized ? (this.estimate - estimate) : estimate;
+                        limit = middle;
+                    } else {
+                        base += 1;
+                        limit = elements.size();
+                    }
+                }
+
+                return spliterator;
+            }
+
+            @Override
+            public boolean tryAdvance(Consumer<? super List<T>> consumer) {
+                if (emitted) {
+                    emitted = false;
+                    valid = increment(size() - 1);
+                }
+
+                while (! exhausted && valid < size()) {
+                    if (test(valid + 1)) {
+                        valid += 1;
+                    } else {
+                        valid = increment(valid);
+                    }
+                }
+
+                emitted = (! exhausted);
+
+                if (emitted) {
+                    estimate = Math.max(0, estimate - 1);
+                    view.size = size();
+
+                    consumer.accept(reuse() ? view : new ArrayList<>(view));
+                }
+
+                return emitted;
+            }
+
+            /*
+             * Tests the prefix of the specified (non-zero) length against
+             * the predicate.
+             */
+            private boolean test(int length) {
+                Predicate<List<T>> predicate = SpliteratorSupplier.this.predicate();
+
+                view.size = length;
+
+                return predicate == null || predicate.test(view);
+            }
+
+            /*
+             * The (exact) number of combinations sharing the prefix
+             * (positions [0, base)) whose value at position base is in the
+             * range [origin, limit).
+             */
+            private long total(int origin, int limit) {
+                int[] remaining = multiplicities.clone();
+                BigInteger count = BigInteger.ZERO;
+
+                for (int p = 0; p < base; p += 1) {
+                    remaining[index[p]] -= 1;
+                }
+
+                for (int v = origin; v < limit; v += 1) {
+                    if (remaining[v] > 0) {
+                        remaining[v] -= 1;
+                        count = count.add(MultisetCombinations.count(remaining, size() - base - 1));
+                        remaining[v] += 1;
+                    }
+                }
+
+                return DispatchSpliterator.saturated(count);
+            }
+
+            /*
+             * The number of occurrences of value v in positions (d, size).
+             */
+            private int count(int v, int d) {
+                int count = 0;
+
+                for (int p = d + 1; p < size(); p += 1) {
+                    if (index[p] == v) {
+                        count += 1;
+                    }
+                }
+
+                return count;
+            }
+
+            /*
+             * Positions the index vector at the first combination (with
+             * the value at position base not less than origin).
+             */
+            private boolean first(int origin) {
+                boolean found = (base == size());
+
+                if (! found) {
+                    int v = origin;
+
+                    while (v < limit && remaining[v] == 0) {
+                        v += 1;
+                    }
+
+                    found = (v < limit);
+
+                    if (found) {
+                        index[base] = v;
+                        remaining[v] -= 1;
+                        fill(base + 1);
+                    }
+                }
+
+                return found;
+            }
+
+            /*
+             * Sets positions [p, size) to the smallest remaining values in
+             * order.
+             */
+            private void fill(int p) {
+                for (int v = 0; p < size(); p += 1) {
+                    while (remaining[v] == 0) {
+                        v += 1;
+                    }
+
+                    index[p] = v;
+                    remaining[v] -= 1;
+                }
+            }
+
+            /*
+             * Advances position d to the next remaining value (carrying to
+             * the left if position d is exhausted) and resets the
+             * positions to the right to the smallest remaining values in
+             * order.  Returns the leftmost changed position; sets
+             * exhausted if the carry passes position base.
+             */
+            private int increment(int d) {
+                for (int p = size() - 1; p > d; p -= 1) {
+                    remaining[index[p]] += 1;
+                }
+
+                while (d >= base) {
+                    remaining[index[d]] += 1;
+
+                    int n = (d == base) ? limit : elements.size();
+                    int v = index[d] + 1;
+
+                    while (v < n && remaining[v] == 0) {
+                        v += 1;
+                    }
+
+                    if (v < n) {
+                        index[d] = v;
+                        remaining[v] -= 1;
+                        break;
+                    } else {
+                        d -= 1;
+                    }
+                }
+
+                if (d >= base) {
+                    fill(d + 1);
+                } else {
+                    exhausted = true;
+                }
+
+                return Math.max(d, 0);
+            }
+
+            @Override
+            public String toString() {
+                return elements + "/" + Arrays.toString(multiplicities) + "/" + Arrays.asList(size());
+            }
+
+            /*
+             * Read-only List view of the first size elements of the
+             * index vector.
+             */
+            private class View extends AbstractList<T> implements RandomAccess {
+                private int size = 0;
+
+                @Override
+                public T get(int i) {
+                    if (i < 0 || i >= size) {
+                        throw new IndexOutOfBoundsException(String.valueOf(i));
+                    }
+
+                    return elements.get(index[i]);
+                }
+
+                @Override
+                public int size() { return size; }
+            }
+        }
+    }
+}
@@ -20,7 +20,9 @@ package ball.util.stream;
  */
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.DoubleAccumulator;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Stream;
 
 /**
@@ -64,4 +66,30 @@ public interface Permutations<T> extends Combinations<T> {
 
         return Combinations.of(size, size, predicate, collection);
     }
+
+    /**
+     * Method to get the {@link Stream} of permutations in branch-and-bound
+     * mode.  See
+     * {@link Combinations#of(int,int,Predicate,ToDoubleFunction,DoubleAccumulator,Collection)}.
+     *
+     * @param   predicate       The optional {@link Predicate} (may be
+     *                          {@code null}) specifying prerequisite
+     *                          requirement(s) for the combinations.  Any
+     *                          path that does not match will be pruned.
+     * @param   bound           The {@link ToDoubleFunction} to calculate
+     *                          the lower bound of a prefix.
+     * @param   best            The shared best (minimum) bound.
+     * @param   collection      The {@link Collection} of elements to
+     *                          permute.
+     * @param   <T>             The {@link Collection} element type.
+     *
+     * @return  The {@link Stream} of permutations.
+     */
+    public static <T> Stream<List<T>> of(Predicate<List<T>> predicate,
+                                         ToDoubleFunction<List<T>> bound, DoubleAccumulator best,
+                                         Collection<T> collection) {
+        int size = collection.size();
+
+        return Combinations.of(size, size, predicate, bound, best, collection);
+    }
 }
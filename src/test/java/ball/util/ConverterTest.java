@@ -0,0 +1,75 @@
+package ball.util;
+/*-
+ * ##########################################################################
+ * Utilities
+ * %%
+ * Copyright (C) 2008 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link Converter} tests.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+public class ConverterTest {
+    @Test
+    public void direct() {
+        assertEquals(5, Converter.convertTo("5", Integer.class));
+        assertEquals(5, Converter.convertTo("5", int.class));
+        assertEquals((byte) 5, Converter.convertTo("5", Number.class));
+        assertEquals("5", Converter.convertTo(5, String.class));
+        assertEquals(Duration.ofSeconds(1), Converter.convertTo("PT1S", Duration.class));
+        assertEquals(Paths.get("/tmp"), Converter.convertTo("/tmp", Path.class));
+        assertEquals(TimeUnit.SECONDS, Converter.convertTo("seconds", TimeUnit.class));
+    }
+
+    @Test
+    public void throughString() {
+        assertEquals(5L, Converter.convertTo(5, Long.class));
+        assertEquals(TimeUnit.SECONDS, Converter.convertTo(new StringBuilder("SECONDS"), TimeUnit.class));
+    }
+
+    @Test
+    public void noConversion() {
+        Object object = new Object();
+        Exception first = missing(object, Integer.class);
+        Exception second = missing(object, Integer.class);
+
+        assertNotSame(first, second);
+
+        missing(object, Duration.class);
+    }
+
+    private Exception missing(Object from, Class<?> type) {
+        IllegalArgumentException exception =
+            assertThrows(IllegalArgumentException.class, () -> Converter.convertTo(from, type));
+
+        assertTrue(exception.getCause() instanceof NoSuchMethodException);
+        assertTrue(exception.getCause().getMessage().startsWith("No conversion"));
+
+        return (Exception) exception.getCause();
+    }
+}
@@ -0,0 +1,180 @@
+package ball.util;
+/*-
+ * ##########################################################################
+ * Utilities
+ * %%
+ * Copyright (C) 2008 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link CoordinateMap} tests.  Each {@link CoordinateMap.Storage}
+ * backend is subjected to the same pseudo-random sequence of operations
+ * as a {@link TreeMap} and the contents (and iteration order) are
+ * compared after every operation.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+public class CoordinateMapTest {
+    private static final int OPERATIONS = 4000;
+
+    @Test
+    public void sparse() { check(CoordinateMap.Storage.SPARSE, 1); }
+
+    @Test
+    public void dense() { check(CoordinateMap.Storage.DENSE, 2); }
+
+    @Test
+    public void tiled() { check(CoordinateMap.Storage.TILED, 3); }
+
+    @Test
+    public void backendsAreEquivalent() {
+        List<List<Object>> results = new ArrayList<>();
+
+        for (CoordinateMap.Storage storage : CoordinateMap.Storage.values()) {
+            CoordinateMap<Integer> map = new CoordinateMap<>(storage);
+
+            map.resize(-20, -20, 20, 20);
+            map.fill(-4, -4, 12, 12, 7);
+            map.subMap(0, 0, 4, 4).clear();
+            map.column(-4).clear();
+            map.put(40, 40, 1);
+            map.resize(-2, -2, 41, 41);
+
+            List<Object> result = new ArrayList<>();
+
+            result.add(new TreeMap<>(map));
+            result.add(map.getMin());
+            result.add(map.getMax());
+            result.add(new ArrayList<>(map.row(5).keySet()));
+            result.add(new ArrayList<>(map.column(5).keySet()));
+
+            results.add(result);
+        }
+
+        for (List<Object> result : results) {
+            assertEquals(results.get(0), result);
+        }
+    }
+
+    private void check(CoordinateMap.Storage storage, long seed) {
+        Random random = new Random(seed);
+        CoordinateMap<Integer> map = new CoordinateMap<>(storage, 0, 0, 0, 0);
+        TreeMap<Coordinate,Integer> expected = new TreeMap<>();
+
+        for (int i = 0; i < OPERATIONS; i += 1) {
+            int y = coordinate(random);
+            int x = coordinate(random);
+            Integer value = (random.nextInt(8) > 0) ? random.nextInt(100) : null;
+
+            switch (random.nextInt(10)) {
+            case 0:
+            case 1:
+            case 2:
+                assertEquals(expected.put(Coordinate.of(y, x), value), map.set(y, x, value));
+                break;
+
+            case 3:
+                assertEquals(expected.put(Coordinate.of(y, x), value), map.put(Coordinate.of(y, x), value));
+                break;
+
+            case 4:
+                assertEquals(expected.remove(Coordinate.of(y, x)), map.remove(y, x));
+                break;
+
+            case 5:
+                assertEquals(keys(expected, t -> t.getX() == x), new ArrayList<>(map.column(x).keySet()));
+                assertEquals(keys(expected, t -> t.getY() == y), new ArrayList<>(map.row(y).keySet()));
+                break;
+
+            case 6:
+                Iterator<Coordinate> iterator = map.column(x).keySet().iterator();
+
+                for (boolean remove = false; iterator.hasNext(); remove = (! remove)) {
+                    Coordinate key = iterator.next();
+
+                    if (remove) {
+                        iterator.remove();
+                        expected.remove(key);
+                    }
+                }
+                break;
+
+            case 7:
+                int yN = y + random.nextInt(12);
+                int xN = x + random.nextInt(12);
+
+                map.subMap(y, x, yN, xN).clear();
+                expected.keySet().removeIf(t -> y <= t.getY() && t.getY() < yN && x <= t.getX() && t.getX() < xN);
+                break;
+
+            case 8:
+                if (random.nextInt(8) == 0) {
+                    int y0 = -random.nextInt(8);
+                    int x0 = -random.nextInt(8);
+                    int y1 = 24 + random.nextInt(16);
+                    int x1 = 24 + random.nextInt(16);
+
+                    map.resize(y0, x0, y1, x1);
+                    expected.keySet().removeIf(t -> (! (y0 <= t.getY() && t.getY() < y1 && x0 <= t.getX() && t.getX() < x1)));
+                }
+                break;
+
+            default:
+                for (Map.Entry<Coordinate,Integer> entry : map.row(y).entrySet()) {
+                    entry.setValue(i);
+                    expected.put(entry.getKey(), i);
+                }
+                break;
+            }
+
+            assertEquals(expected.size(), map.size());
+            assertEquals(expected, map);
+        }
+
+        assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(map.entrySet()));
+
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertEquals(new ArrayList<>(), new ArrayList<>(map.column(0).keySet()));
+    }
+
+    /*
+     * Mostly a small neighborhood (so cells collide) with occasional
+     * distant coordinates (so the tile table grows).
+     */
+    private int coordinate(Random random) {
+        return (random.nextInt(16) > 0) ? (random.nextInt(40) - 8) : (random.nextInt(400) - 200);
+    }
+
+    private List<Coordinate> keys(TreeMap<Coordinate,Integer> map, Predicate<Coordinate> predicate) {
+        List<Coordinate> list = new ArrayList<>();
+
+        map.keySet().stream().filter(predicate).forEach(list::add);
+
+        return list;
+    }
+}
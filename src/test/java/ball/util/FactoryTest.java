@@ -0,0 +1,120 @@
+package ball.util;
+/*-
+ * ##########################################################################
+ * Utilities
+ * %%
+ * Copyright (C) 2008 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link Factory} tests.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+public class FactoryTest {
+    private static final int COUNT = 200_000;
+
+    @Test
+    public void sharedIsReadOnly() {
+        Factory<Integer> factory = Factory.of(Integer.class);
+        Class<?>[] key = new Class<?>[] { String.class };
+
+        assertSame(factory, Factory.of(Integer.class));
+        assertNotNull(factory.get(key));
+        assertThrows(UnsupportedOperationException.class, () -> factory.put(key, null));
+        assertThrows(UnsupportedOperationException.class, () -> factory.remove(key));
+        assertThrows(UnsupportedOperationException.class, () -> factory.clear());
+        assertThrows(UnsupportedOperationException.class, () -> factory.entrySet().clear());
+        assertThrows(UnsupportedOperationException.class, () -> factory.keySet().remove(key));
+        assertThrows(UnsupportedOperationException.class, () -> factory.headMap(key).clear());
+        assertThrows(UnsupportedOperationException.class, () -> factory.pollFirstEntry());
+        assertNotNull(factory.get(key));
+    }
+
+    @Test
+    public void modificationInvalidatesResolution() {
+        Factory<Integer> factory = new Factory<>(Integer.class);
+        Class<?>[] key = new Class<?>[] { String.class };
+
+        assertNotNull(factory.get(key));
+
+        factory.remove(key);
+
+        assertNull(factory.get(key));
+        assertNull(factory.get(new Class<?>[] { StringBuilder.class }));
+    }
+
+    @Test
+    public void compiledMatchesReflective() throws Exception {
+        Factory<BigDecimal> factory = Factory.of(BigDecimal.class);
+        Method method = BigDecimal.class.getMethod("valueOf", long.class);
+        Constructor<BigDecimal> constructor = BigDecimal.class.getConstructor(String.class);
+
+        assertEquals(method.invoke(null, 7L), factory.apply(method, 7L));
+        assertEquals(constructor.newInstance("1.5"), factory.apply(constructor, "1.5"));
+        assertThrows(IllegalArgumentException.class, () -> factory.apply(method, "7"));
+    }
+
+    /*
+     * Reports the cost of reflective versus compiled (Factory.apply)
+     * invocation.  The timings are printed rather than asserted.
+     */
+    @Test
+    public void timing() throws Exception {
+        Factory<BigDecimal> factory = Factory.of(BigDecimal.class);
+        Member member = factory.getFactoryMethod(String.class);
+
+        assertTrue(member instanceof Constructor);
+
+        Constructor<?> constructor = (Constructor<?>) member;
+        long reflective = 0;
+        long compiled = 0;
+
+        for (int pass = 0; pass < 3; pass += 1) {
+            long start = System.nanoTime();
+
+            for (int i = 0; i < COUNT; i += 1) {
+                constructor.newInstance("1.5");
+            }
+
+            reflective = System.nanoTime() - start;
+            start = System.nanoTime();
+
+            for (int i = 0; i < COUNT; i += 1) {
+                factory.apply(member, "1.5");
+            }
+
+            compiled = System.nanoTime() - start;
+        }
+
+        System.out.println(String.format("%s: %d invocations: reflective %d ms; compiled %d ms",
+                                         member, COUNT,
+                                         NANOSECONDS.toMillis(reflective), NANOSECONDS.toMillis(compiled)));
+    }
+}
@@ -0,0 +1,172 @@
+package ball.util;
+/*-
+ * ##########################################################################
+ * Utilities
+ * %%
+ * Copyright (C) 2008 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link ObservableMapView} tests.  Batches are delivered on an
+ * {@link Executor} that only runs the submitted tasks when requested so
+ * the tests do not depend on timing.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+public class ObservableMapViewTest {
+    @Test
+    public void writesDuringDeliveryDoNotScheduleAnotherBatch() {
+        Tasks tasks = new Tasks();
+        ObservableMapView<Integer,Integer> map = new ObservableMapView<>(new ConcurrentHashMap<>(), tasks);
+        List<Set<Integer>> batches = new ArrayList<>();
+        List<Integer> scheduled = new ArrayList<>();
+
+        map.addListener((m, keys) -> {
+                batches.add(new LinkedHashSet<>(keys));
+
+                if (keys.contains(1)) {
+                    m.put(2, 2);
+                    m.put(3, 3);
+                    scheduled.add(tasks.size());
+                }
+            });
+
+        map.put(1, 1);
+        map.put(1, 1);
+
+        assertEquals(1, tasks.size());
+
+        tasks.run();
+
+        assertEquals(Arrays.asList(0), scheduled);
+        assertEquals(1, tasks.size());
+
+        tasks.run();
+
+        assertEquals(0, tasks.size());
+        assertEquals(Arrays.asList(set(1), set(2, 3)), batches);
+    }
+
+    @Test
+    public void everyKeyIsDeliveredOnce() {
+        Tasks tasks = new Tasks();
+        ObservableMapView<Integer,Integer> map = new ObservableMapView<>(new ConcurrentHashMap<>(), tasks);
+        List<Integer> delivered = new ArrayList<>();
+
+        map.addListener((m, keys) -> delivered.addAll(keys));
+
+        for (int i = 0; i < 100; i += 1) {
+            map.put(i % 10, i);
+
+            if (i % 7 == 0) {
+                tasks.run();
+            }
+        }
+
+        while (tasks.size() > 0) {
+            tasks.run();
+        }
+
+        assertTrue(delivered.containsAll(map.keySet()));
+        assertEquals(map.keySet(), new LinkedHashSet<>(delivered));
+    }
+
+    @Test
+    public void entrySetValueIsDelivered() {
+        Tasks tasks = new Tasks();
+        ObservableMapView<Integer,Integer> map = new ObservableMapView<>(new ConcurrentHashMap<>(), tasks);
+        List<Integer> delivered = new ArrayList<>();
+
+        map.put(1, 1);
+        map.put(2, 2);
+        tasks.run();
+
+        map.addListener((m, keys) -> delivered.addAll(keys));
+
+        for (Map.Entry<Integer,Integer> entry : map.entrySet()) {
+            entry.setValue(99);
+        }
+
+        tasks.run();
+
+        assertEquals(Arrays.asList(99, 99), new ArrayList<>(map.values()));
+        assertEquals(set(1, 2), new LinkedHashSet<>(delivered));
+    }
+
+    @Test
+    public void throwingListenerDoesNotStopDelivery() {
+        Tasks tasks = new Tasks();
+        ObservableMapView<Integer,Integer> map = new ObservableMapView<>(new ConcurrentHashMap<>(), tasks);
+        List<Integer> delivered = new ArrayList<>();
+        List<Throwable> uncaught = new ArrayList<>();
+        Thread thread = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+
+        map.addListener((m, keys) -> { throw new IllegalStateException(); });
+        map.addListener((m, keys) -> delivered.addAll(keys));
+
+        thread.setUncaughtExceptionHandler((t, e) -> uncaught.add(e));
+
+        try {
+            map.put(1, 1);
+            tasks.run();
+        } finally {
+            thread.setUncaughtExceptionHandler(handler);
+        }
+
+        assertEquals(Arrays.asList(1), delivered);
+        assertEquals(1, uncaught.size());
+        assertTrue(uncaught.get(0) instanceof IllegalStateException);
+    }
+
+    private static Set<Integer> set(Integer... keys) {
+        return new LinkedHashSet<>(Arrays.asList(keys));
+    }
+
+    /*
+     * Executor that queues the submitted tasks until run() is called.
+     */
+    private static class Tasks implements Executor {
+        private final Queue<Runnable> queue = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) { queue.add(task); }
+
+        public int size() { return queue.size(); }
+
+        public void run() {
+            Runnable task = queue.poll();
+
+            if (task != null) {
+                task.run();
+            }
+        }
+    }
+}
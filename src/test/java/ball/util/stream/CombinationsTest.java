@@ -0,0 +1,98 @@
+package ball.util.stream;
+/*-
+ * ##########################################################################
+ * Utilities
+ * %%
+ * Copyright (C) 2008 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * {@link Combinations} tests.  The rank of a combination is its position
+ * in the (sequential, unpruned) {@link Combinations.SpliteratorSupplier#stream()}.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+public class CombinationsTest {
+    private static final List<Integer> ELEMENTS = IntStream.range(0, 7).boxed().collect(Collectors.toList());
+
+    @Test
+    public void ascending() { check(supplier(1, 4)); }
+
+    @Test
+    public void descending() { check(supplier(5, 2)); }
+
+    @Test
+    public void single() { check(supplier(3, 3)); }
+
+    @Test
+    public void outOfRange() {
+        Combinations.SpliteratorSupplier<Integer> supplier = supplier(2, 3);
+        long count = supplier.stream().count();
+
+        assertThrows(IndexOutOfBoundsException.class, () -> supplier.get(count));
+        assertThrows(IndexOutOfBoundsException.class, () -> supplier.get(-1));
+        assertThrows(IllegalArgumentException.class, () -> supplier.rank(Arrays.asList(0)));
+        assertThrows(IllegalArgumentException.class, () -> supplier.rank(Arrays.asList(0, 99)));
+    }
+
+    private Combinations.SpliteratorSupplier<Integer> supplier(int size0, int sizeN) {
+        return new Combinations.SpliteratorSupplier<Integer>().collection(ELEMENTS).size0(size0).sizeN(sizeN);
+    }
+
+    private void check(Combinations.SpliteratorSupplier<Integer> supplier) {
+        List<List<Integer>> expected = supplier.stream().collect(Collectors.toList());
+        int count = expected.size();
+
+        for (int rank = 0; rank < count; rank += 1) {
+            assertEquals(expected.get(rank), supplier.get(rank));
+            assertEquals(rank, supplier.rank(expected.get(rank)));
+        }
+
+        Random random = new Random(count);
+
+        for (int i = 0; i < 32; i += 1) {
+            int from = random.nextInt(count + 1);
+            int to = from + random.nextInt(count + 1 - from);
+            Spliterator<List<Integer>> spliterator = supplier.get(from, to);
+
+            assertEquals(to - from, spliterator.getExactSizeIfKnown());
+            assertEquals(expected.subList(from, to), supplier.stream(from, to).collect(Collectors.toList()));
+        }
+
+        assertEquals(count, supplier.stream().parallel().count());
+        assertEquals(sorted(expected), sorted(supplier.stream().parallel().collect(Collectors.toList())));
+
+        List<List<Integer>> shuffled = supplier.shuffle(new Random(count)).collect(Collectors.toList());
+
+        assertEquals(count, shuffled.size());
+        assertEquals(sorted(expected), sorted(shuffled));
+    }
+
+    private List<String> sorted(List<List<Integer>> list) {
+        return list.stream().map(String::valueOf).sorted().collect(Collectors.toCollection(ArrayList::new));
+    }
+}